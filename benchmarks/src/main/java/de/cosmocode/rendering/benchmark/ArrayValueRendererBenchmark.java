@@ -0,0 +1,98 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering.benchmark;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import de.cosmocode.rendering.ArrayValueRenderer;
+import de.cosmocode.rendering.CollectionRenderer;
+import de.cosmocode.rendering.Renderer;
+
+/**
+ * Benchmarks {@link ArrayValueRenderer} with primitive arrays.
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+@State(Scope.Benchmark)
+public class ArrayValueRendererBenchmark {
+
+    @Param({"10000"})
+    int size;
+    
+    private long[] longs;
+    
+    private double[] doubles;
+    
+    private int[] ints;
+    
+    @Setup
+    public void setUp() {
+        final Random random = new Random(size);
+        longs = new long[size];
+        doubles = new double[size];
+        ints = new int[size];
+        for (int i = 0; i < size; i++) {
+            longs[i] = random.nextLong();
+            doubles[i] = random.nextDouble();
+            ints[i] = random.nextInt();
+        }
+    }
+    
+    private Object render(Object array) {
+        final Renderer renderer = new CollectionRenderer();
+        ArrayValueRenderer.INSTANCE.render(array, renderer);
+        return renderer.build();
+    }
+    
+    /**
+     * Renders a {@code long[]}.
+     *
+     * @return the built structure
+     */
+    @Benchmark
+    public Object longs() {
+        return render(longs);
+    }
+    
+    /**
+     * Renders a {@code double[]}.
+     *
+     * @return the built structure
+     */
+    @Benchmark
+    public Object doubles() {
+        return render(doubles);
+    }
+    
+    /**
+     * Renders an {@code int[]}.
+     *
+     * @return the built structure
+     */
+    @Benchmark
+    public Object ints() {
+        return render(ints);
+    }
+    
+}
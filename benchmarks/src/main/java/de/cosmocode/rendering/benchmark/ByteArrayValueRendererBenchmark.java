@@ -0,0 +1,63 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering.benchmark;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import de.cosmocode.rendering.ByteArrayValueRenderer;
+import de.cosmocode.rendering.CollectionRenderer;
+import de.cosmocode.rendering.Renderer;
+
+/**
+ * Benchmarks the Base64 encoding of {@link ByteArrayValueRenderer}.
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+@State(Scope.Benchmark)
+public class ByteArrayValueRendererBenchmark {
+
+    @Param({"1024", "1048576"})
+    int size;
+    
+    private byte[] bytes;
+    
+    @Setup
+    public void setUp() {
+        bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+    }
+    
+    /**
+     * Renders a {@code byte[]} inside a list.
+     *
+     * @return the built structure
+     */
+    @Benchmark
+    public Object base64() {
+        final Renderer renderer = new CollectionRenderer().list();
+        ByteArrayValueRenderer.INSTANCE.render(bytes, renderer);
+        return renderer.endList().build();
+    }
+    
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering.benchmark;
+
+import java.util.List;
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import de.cosmocode.rendering.CollectionRenderer;
+
+/**
+ * Benchmarks {@link CollectionRenderer} with flat and deep structures.
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+@State(Scope.Benchmark)
+public class CollectionRendererBenchmark {
+
+    @Param({"1000"})
+    int size;
+    
+    @Param({"32"})
+    int depth;
+    
+    private List<Long> numbers;
+    
+    private List<Map<String, Object>> records;
+    
+    private Map<String, Object> deep;
+    
+    @Setup
+    public void setUp() {
+        numbers = Lists.newArrayListWithCapacity(size);
+        records = Lists.newArrayListWithCapacity(size);
+        for (int i = 0; i < size; i++) {
+            numbers.add(Long.valueOf(i));
+            final Map<String, Object> record = Maps.newLinkedHashMap();
+            record.put("id", Long.valueOf(i));
+            record.put("name", "name-" + i);
+            record.put("price", Double.valueOf(i * 0.5));
+            record.put("active", Boolean.valueOf(i % 2 == 0));
+            record.put("tags", Lists.newArrayList("a", "b", "c"));
+            records.add(record);
+        }
+        
+        deep = Maps.newLinkedHashMap();
+        Map<String, Object> current = deep;
+        for (int i = 0; i < depth; i++) {
+            final Map<String, Object> child = Maps.newLinkedHashMap();
+            current.put("level", Integer.valueOf(i));
+            current.put("values", Lists.newArrayList(1L, 2L, 3L));
+            current.put("child", child);
+            current = child;
+        }
+    }
+    
+    /**
+     * A flat list of numbers.
+     *
+     * @return the built structure
+     */
+    @Benchmark
+    public Object flatList() {
+        return new CollectionRenderer().value(numbers).build();
+    }
+    
+    /**
+     * A list of homogeneous records.
+     *
+     * @return the built structure
+     */
+    @Benchmark
+    public Object records() {
+        return new CollectionRenderer().value(records).build();
+    }
+    
+    /**
+     * A list of homogeneous records using compact maps.
+     *
+     * @return the built structure
+     */
+    @Benchmark
+    public Object compactRecords() {
+        final CollectionRenderer renderer = new CollectionRenderer();
+        renderer.enableCompactMaps();
+        return renderer.value(records).build();
+    }
+    
+    /**
+     * A deeply nested structure of maps.
+     *
+     * @return the built structure
+     */
+    @Benchmark
+    public Object deep() {
+        return new CollectionRenderer().value(deep).build();
+    }
+    
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering.benchmark;
+
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import de.cosmocode.rendering.AbstractRenderer;
+import de.cosmocode.rendering.CollectionRenderer;
+import de.cosmocode.rendering.Mapping;
+import de.cosmocode.rendering.Mappings;
+import de.cosmocode.rendering.ValueRenderer;
+
+/**
+ * Benchmarks the dispatch of {@link AbstractRenderer#value(Object)} through
+ * {@link Mappings#defaultMapping()}.
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+@State(Scope.Benchmark)
+public class DispatchBenchmark {
+
+    private final Mapping mapping = Mappings.defaultMapping();
+    
+    private final Object[] values = {
+        "string", Integer.valueOf(1), Long.valueOf(2L), Boolean.TRUE, Double.valueOf(3.0), 
+        Float.valueOf(4.0f), new StringBuilder("builder"), TimeUnit.SECONDS, new Date(0L), new Timestamp(0L),
+        new HashSet<Object>(), new LinkedHashMap<Object, Object>(), String.class, 'c'
+    };
+    
+    private Class<?>[] types;
+    
+    @Setup
+    public void setUp() {
+        types = new Class<?>[values.length];
+        for (int i = 0; i < values.length; i++) {
+            types[i] = values[i].getClass();
+        }
+    }
+    
+    /**
+     * Renders values of several types using {@link AbstractRenderer#value(Object)}.
+     *
+     * @return the built structure
+     */
+    @Benchmark
+    public Object unknownValue() {
+        return new CollectionRenderer().list().values(values).endList().build();
+    }
+    
+    /**
+     * Resolves the renderers for several types using {@link Mapping#find(Class)}.
+     *
+     * @return the last found renderer
+     */
+    @Benchmark
+    public ValueRenderer<?> find() {
+        ValueRenderer<?> renderer = null;
+        for (Class<?> type : types) {
+            renderer = mapping.find(type);
+        }
+        return renderer;
+    }
+    
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering.benchmark;
+
+import java.util.List;
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import de.cosmocode.rendering.CollectionRenderer;
+import de.cosmocode.rendering.JsonRenderer;
+import de.cosmocode.rendering.RecordingRenderer;
+
+/**
+ * Compares recording with {@link RecordingRenderer} to building
+ * with {@link CollectionRenderer} and measures replay costs.
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+@State(Scope.Benchmark)
+public class RecordingRendererBenchmark {
+
+    @Param({"1000"})
+    int size;
+    
+    private List<Map<String, Object>> records;
+    
+    private RecordingRenderer recording;
+    
+    @Setup
+    public void setUp() {
+        records = Lists.newArrayListWithCapacity(size);
+        for (int i = 0; i < size; i++) {
+            final Map<String, Object> record = Maps.newLinkedHashMap();
+            record.put("id", Long.valueOf(i));
+            record.put("name", "name-" + i);
+            record.put("price", Double.valueOf(i * 0.5));
+            record.put("active", Boolean.valueOf(i % 2 == 0));
+            record.put("tags", Lists.newArrayList("a", "b", "c"));
+            records.add(record);
+        }
+        recording = new RecordingRenderer();
+        recording.value(records);
+    }
+    
+    /**
+     * Records a list of homogeneous records.
+     *
+     * @return the recording
+     */
+    @Benchmark
+    public Object record() {
+        final RecordingRenderer renderer = new RecordingRenderer();
+        renderer.value(records);
+        return renderer.build();
+    }
+    
+    /**
+     * Builds a list of homogeneous records, the baseline for {@link #record()}.
+     *
+     * @return the built structure
+     */
+    @Benchmark
+    public Object build() {
+        return new CollectionRenderer().value(records).build();
+    }
+    
+    /**
+     * Replays a recorded list of homogeneous records as json.
+     *
+     * @return the rendered json
+     */
+    @Benchmark
+    public Object replayJson() {
+        return recording.replay(new JsonRenderer(new StringBuilder())).build();
+    }
+    
+}
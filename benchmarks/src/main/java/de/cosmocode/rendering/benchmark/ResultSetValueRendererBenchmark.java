@@ -0,0 +1,72 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering.benchmark;
+
+import java.sql.ResultSet;
+import java.sql.Types;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import de.cosmocode.rendering.CollectionRenderer;
+import de.cosmocode.rendering.Renderer;
+import de.cosmocode.rendering.ResultSetValueRenderer;
+
+/**
+ * Benchmarks {@link ResultSetValueRenderer} against an in-memory {@link ResultSet}.
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+@State(Scope.Benchmark)
+public class ResultSetValueRendererBenchmark {
+
+    private static final String[] COLUMNS = {"id", "name", "price", "amount"};
+    
+    private static final int[] TYPES = {Types.BIGINT, Types.VARCHAR, Types.DOUBLE, Types.INTEGER};
+    
+    @Param({"1000"})
+    int rows;
+    
+    private Object[][] data;
+    
+    @Setup
+    public void setUp() {
+        data = new Object[rows][];
+        for (int i = 0; i < rows; i++) {
+            data[i] = new Object[] {
+                Long.valueOf(i), "name-" + i, Double.valueOf(i * 0.5), Integer.valueOf(i % 100)
+            };
+        }
+    }
+    
+    /**
+     * Renders a result set.
+     *
+     * @return the built structure
+     */
+    @Benchmark
+    public Object resultSet() {
+        final Renderer renderer = new CollectionRenderer();
+        ResultSetValueRenderer.INSTANCE.render(ResultSets.of(COLUMNS, TYPES, data), renderer);
+        return renderer.build();
+    }
+    
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+
+/**
+ * Creates in-memory {@link ResultSet}s backed by arrays. Only the
+ * methods needed for rendering are supported.
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+final class ResultSets {
+
+    private ResultSets() {
+        
+    }
+    
+    /**
+     * Creates a forward only result set.
+     *
+     * @param columns the column names
+     * @param types the column types, as defined in {@link java.sql.Types}
+     * @param rows the rows
+     * @return a new result set
+     */
+    static ResultSet of(final String[] columns, final int[] types, final Object[][] rows) {
+        final ResultSetMetaData meta = proxy(ResultSetMetaData.class, new InvocationHandler() {
+            
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                final String name = method.getName();
+                if ("getColumnCount".equals(name)) {
+                    return columns.length;
+                } else if ("getColumnName".equals(name) || "getColumnLabel".equals(name)) {
+                    return columns[(Integer) args[0] - 1];
+                } else if ("getColumnType".equals(name)) {
+                    return types[(Integer) args[0] - 1];
+                } else {
+                    throw new UnsupportedOperationException(name);
+                }
+            }
+            
+        });
+        
+        return proxy(ResultSet.class, new InvocationHandler() {
+            
+            private int row = -1;
+            
+            private Object last;
+            
+            private int fetchSize;
+            
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                final String name = method.getName();
+                if ("next".equals(name)) {
+                    return ++row < rows.length;
+                } else if ("getMetaData".equals(name)) {
+                    return meta;
+                } else if ("wasNull".equals(name)) {
+                    return last == null;
+                } else if ("close".equals(name)) {
+                    return null;
+                } else if ("getFetchSize".equals(name)) {
+                    return fetchSize;
+                } else if ("setFetchSize".equals(name)) {
+                    fetchSize = (Integer) args[0];
+                    return null;
+                } else if (name.startsWith("get") && args != null && args[0] instanceof Integer) {
+                    last = rows[row][(Integer) args[0] - 1];
+                    return convert(last, method.getReturnType());
+                } else {
+                    throw new UnsupportedOperationException(name);
+                }
+            }
+            
+        });
+    }
+    
+    private static Object convert(Object value, Class<?> type) {
+        if (type == long.class) {
+            return value == null ? 0L : ((Number) value).longValue();
+        } else if (type == int.class) {
+            return value == null ? 0 : ((Number) value).intValue();
+        } else if (type == double.class) {
+            return value == null ? 0d : ((Number) value).doubleValue();
+        } else if (type == boolean.class) {
+            return value == null ? false : (Boolean) value;
+        } else if (type == String.class) {
+            return value == null ? null : value.toString();
+        } else {
+            return value;
+        }
+    }
+    
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, handler));
+    }
+    
+}
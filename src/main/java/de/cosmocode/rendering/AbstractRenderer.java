@@ -16,6 +16,9 @@
 
 package de.cosmocode.rendering;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -25,6 +28,7 @@ import javax.annotation.Nullable;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Iterators;
+import com.google.common.io.CharStreams;
 
 /**
  * Abstract base implementation of the {@link Renderer} interface.
@@ -37,15 +41,83 @@ public abstract class AbstractRenderer implements Renderer {
 
     private KeyMapping keyMapping = KeyMappings.defaultMapping();
     private Mapping mapping = Mappings.defaultMapping();
+    
+    /**
+     * Whether the current mapping renders the hottest types using their default
+     * renderers, which allows them to bypass the mapping lookup.
+     */
+    private boolean fastPath = true;
+    
+    /**
+     * The active cycle detector, null if cycle detection is disabled.
+     */
+    private CycleDetector cycles;
 
     @Override
     public void setKeyMapping(KeyMapping keyMapping) {
         this.keyMapping = Preconditions.checkNotNull(keyMapping, "KeyMapping");
     }
     
+    /**
+     * Enables identity based cycle detection. Values which are already being rendered
+     * further up in the current structure cause a {@link RenderingException}.
+     * 
+     * <p>
+     *   Values are tracked when rendered by {@link ValueRenderer}s, including all values
+     *   passed to {@link #value(Object)}, and when passed to {@link #value(Iterable)},
+     *   {@link #value(Map)} or {@link #value(Renderable, RenderingLevel)}.
+     * </p>
+     * 
+     * @since 1.3
+     */
+    public void enableCycleDetection() {
+        this.cycles = new CycleDetector(null);
+    }
+    
+    /**
+     * Enables identity based cycle detection. Values which are already being rendered
+     * further up in the current structure are rendered using the given placeholder,
+     * e.g. a reference or null.
+     * 
+     * @since 1.3
+     * @see #enableCycleDetection()
+     * @param placeholder the renderer for values closing a cycle
+     * @throws NullPointerException if placeholder is null
+     */
+    public void enableCycleDetection(ValueRenderer<Object> placeholder) {
+        Preconditions.checkNotNull(placeholder, "Placeholder");
+        this.cycles = new CycleDetector(placeholder);
+    }
+    
+    /**
+     * Disables cycle detection, which is the default.
+     * 
+     * @since 1.3
+     */
+    public void disableCycleDetection() {
+        this.cycles = null;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <p>
+     *   The renderers for {@link String}, {@link Integer}, {@link Long} and {@link Boolean}
+     *   are looked up once when the mapping is set. As long as they are the default ones,
+     *   these types bypass the mapping lookup in {@link #unknownValue(Object)}. Changes
+     *   of these four types in a mutable mapping only take effect after setting it again.
+     * </p>
+     */
     @Override
     public void setMapping(Mapping mapping) {
         this.mapping = Preconditions.checkNotNull(mapping, "Mapping");
+        this.fastPath = mapping == Mappings.defaultMapping() || usesDefaultRenderers(mapping);
+    }
+    
+    private static boolean usesDefaultRenderers(Mapping mapping) {
+        return mapping.find(String.class) == (ValueRenderer<?>) CharSequenceValueRenderer.INSTANCE
+            && mapping.find(Integer.class) == (ValueRenderer<?>) IntegerValueRenderer.INSTANCE
+            && mapping.find(Long.class) == (ValueRenderer<?>) LongValueRenderer.INSTANCE
+            && mapping.find(Boolean.class) == (ValueRenderer<?>) BooleanValueRenderer.INSTANCE;
     }
     
     @Override
@@ -59,7 +131,8 @@ public abstract class AbstractRenderer implements Renderer {
      * 
      * <p>
      *   This implementation tries to find a mapping capable of rendering
-     *   the given type using the current {@link KeyMapping}.
+     *   the given type using the current {@link KeyMapping}. Keys resolved to
+     *   {@link EnumKeyRenderer} are passed on as cached {@link EncodedString}s.
      * </p>
      * 
      * @param key the key of an unknown type
@@ -73,7 +146,11 @@ public abstract class AbstractRenderer implements Renderer {
             final Class<? extends Object> type = key.getClass();
             final KeyRenderer<Object> renderer = keyMapping.find(type);
             checkPresent(renderer, type);
-            return key(renderer.apply(key));
+            if (EnumKeyRenderer.INSTANCE.equals(renderer)) {
+                return key(EncodedString.of(Enum.class.cast(key)));
+            } else {
+                return key(renderer.apply(key));
+            }
         }
     }
     
@@ -95,6 +172,34 @@ public abstract class AbstractRenderer implements Renderer {
         return Rendering.maxLevel();
     }
     
+    /**
+     * {@inheritDoc}
+     * <p>
+     *   This implementation ignores the size and delegates to {@link #list()}.
+     * </p>
+     */
+    @Override
+    public Renderer list(int expectedSize) throws RenderingException {
+        checkExpectedSize(expectedSize);
+        return list();
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <p>
+     *   This implementation ignores the size and delegates to {@link #map()}.
+     * </p>
+     */
+    @Override
+    public Renderer map(int expectedSize) throws RenderingException {
+        checkExpectedSize(expectedSize);
+        return map();
+    }
+    
+    private void checkExpectedSize(int expectedSize) {
+        Preconditions.checkArgument(expectedSize >= 0, "ExpectedSize must not be negative, but was %s", expectedSize);
+    }
+    
     @Override
     public Renderer value(@Nullable Object value) throws RenderingException {
         return unknownValue(value);
@@ -106,7 +211,11 @@ public abstract class AbstractRenderer implements Renderer {
      * 
      * <p>
      *   This implementation tries to find a mapping capable of rendering
-     *   the given type using the current {@link Mapping}.
+     *   the given type using the current {@link Mapping}. As long as the 
+     *   mapping renders {@link String}s, {@link Integer}s, {@link Long}s and {@link Boolean}s
+     *   using their default renderers, these are passed to their corresponding value
+     *   methods directly, which is what their default renderers would do.
+     *   See {@link #setMapping(Mapping)} for details.
      * </p>
      * 
      * @param value the value of an unknown type
@@ -118,6 +227,17 @@ public abstract class AbstractRenderer implements Renderer {
             return nullValue();
         } else {
             final Class<? extends Object> type = value.getClass();
+            if (fastPath) {
+                if (type == String.class) {
+                    return value(CharSequence.class.cast(value));
+                } else if (type == Integer.class) {
+                    return value(Integer.class.cast(value).longValue());
+                } else if (type == Long.class) {
+                    return value(Long.class.cast(value).longValue());
+                } else if (type == Boolean.class) {
+                    return value(Boolean.class.cast(value).booleanValue());
+                }
+            }
             final ValueRenderer<Object> renderer = mapping.find(type);
             checkPresent(renderer, type);
             return value(value, renderer);
@@ -130,13 +250,51 @@ public abstract class AbstractRenderer implements Renderer {
         }
     }
     
+    /**
+     * {@inheritDoc}
+     * <p>
+     *   This implementation reads the whole reader into a string
+     *   and delegates to {@link #value(CharSequence)}.
+     * </p>
+     */
+    @Override
+    public Renderer value(@Nullable Reader value) throws RenderingException {
+        if (value == null) {
+            return nullValue();
+        } else {
+            try {
+                return value(CharStreams.toString(value));
+            } catch (IOException e) {
+                throw new RenderingException(e);
+            }
+        }
+    }
+    
     @Override
     public <T> Renderer value(T value, ValueRenderer<? super T> renderer) throws RenderingException {
         Preconditions.checkNotNull(renderer, "Renderer");
-        renderer.render(value, this);
+        if (cycles == null || value == null) {
+            renderer.render(value, this);
+        } else if (cycles.enter(value)) {
+            try {
+                renderer.render(value, this);
+            } finally {
+                cycles.exit();
+            }
+        } else {
+            cycles.cycle(value, this);
+        }
         return this;
     }
     
+    /**
+     * Checks whether the given value has to be tracked by the cycle detection
+     * before being rendered.
+     */
+    private boolean isUntracked(Object value) {
+        return cycles != null && !cycles.isCurrent(value);
+    }
+    
     @Override
     public <T> Renderer values(T... values) throws RenderingException {
         Preconditions.checkNotNull(values, "Values");
@@ -197,13 +355,19 @@ public abstract class AbstractRenderer implements Renderer {
     @Override
     public <T> Renderer value(T... values) throws RenderingException {
         Preconditions.checkNotNull(values, "Values");
-        return list().values(values).endList();
+        return list(values.length).values(values).endList();
     }
     
     @Override
     public Renderer value(Iterable<?> values) throws RenderingException {
         Preconditions.checkNotNull(values, "Values");
-        return value(values.iterator());
+        if (isUntracked(values)) {
+            return value(values, IterableValueRenderer.INSTANCE);
+        } else if (values instanceof Collection<?>) {
+            return list(Collection.class.cast(values).size()).values(values).endList();
+        } else {
+            return value(values.iterator());
+        }
     }
     
     @Override
@@ -211,7 +375,11 @@ public abstract class AbstractRenderer implements Renderer {
         throws RenderingException {
         Preconditions.checkNotNull(values, "Values");
         Preconditions.checkNotNull(renderer, "Renderer");
-        return value(values.iterator(), renderer);
+        if (values instanceof Collection<?>) {
+            return list(Collection.class.cast(values).size()).values(values, renderer).endList();
+        } else {
+            return value(values.iterator(), renderer);
+        }
     }
     
     @Override
@@ -232,7 +400,11 @@ public abstract class AbstractRenderer implements Renderer {
     public Renderer value(Iterable<? extends Renderable> values, RenderingLevel level) throws RenderingException {
         Preconditions.checkNotNull(values, "Values");
         Preconditions.checkNotNull(level, "Level");
-        return list().values(values, level).endList();
+        if (values instanceof Collection<?>) {
+            return list(Collection.class.cast(values).size()).values(values, level).endList();
+        } else {
+            return list().values(values, level).endList();
+        }
     }
     
     @Override
@@ -242,6 +414,32 @@ public abstract class AbstractRenderer implements Renderer {
         return list().values(values, level).endList();
     }
     
+    @Override
+    public Renderer value(@Nullable long[] values) throws RenderingException {
+        if (values == null) {
+            return nullValue();
+        } else {
+            list(values.length);
+            for (long value : values) {
+                value(value);
+            }
+            return endList();
+        }
+    }
+    
+    @Override
+    public Renderer value(@Nullable double[] values) throws RenderingException {
+        if (values == null) {
+            return nullValue();
+        } else {
+            list(values.length);
+            for (double value : values) {
+                value(value);
+            }
+            return endList();
+        }
+    }
+    
     @Override
     public Renderer pairs(Map<?, ?> pairs) throws RenderingException {
         Preconditions.checkNotNull(pairs, "Pairs");
@@ -273,20 +471,41 @@ public abstract class AbstractRenderer implements Renderer {
     
     @Override
     public Renderer value(@Nullable Map<?, ?> pairs) throws RenderingException {
-        return pairs == null ? nullValue() : map().pairs(pairs).endMap();
+        if (pairs == null) {
+            return nullValue();
+        } else if (isUntracked(pairs)) {
+            return value(pairs, MapValueRenderer.INSTANCE);
+        } else {
+            return map(pairs.size()).pairs(pairs).endMap();
+        }
     }
     
     @Override
     public <T> Renderer value(@Nullable Map<?, ? extends T> pairs, ValueRenderer<? super T> renderer) 
         throws RenderingException {
         Preconditions.checkNotNull(renderer, "Renderer");
-        return pairs == null ? nullValue() : map().pairs(pairs, renderer).endMap();
+        return pairs == null ? nullValue() : map(pairs.size()).pairs(pairs, renderer).endMap();
     }
     
     @Override
     public Renderer value(@Nullable Renderable pairs, RenderingLevel level) throws RenderingException {
         Preconditions.checkNotNull(level, "Level");
-        return pairs == null ? nullValue() : map().pairs(pairs, level).endMap();
+        if (pairs == null) {
+            return nullValue();
+        } else if (isUntracked(pairs)) {
+            if (cycles.enter(pairs)) {
+                try {
+                    return value(pairs, level);
+                } finally {
+                    cycles.exit();
+                }
+            } else {
+                cycles.cycle(pairs, this);
+                return this;
+            }
+        } else {
+            return map().pairs(pairs, level).endMap();
+        }
     }
     
 }
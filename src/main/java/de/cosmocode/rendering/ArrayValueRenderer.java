@@ -16,15 +16,12 @@
 
 package de.cosmocode.rendering;
 
-import java.lang.reflect.Array;
-import java.util.Set;
-
 import javax.annotation.Nullable;
 
-import com.google.common.collect.ImmutableSet;
-
 /**
- * {@link Object}[] {@link ValueRenderer}.
+ * {@link Object}[] {@link ValueRenderer}. Primitive arrays are rendered
+ * without auto-boxing, {@code long[]} and {@code double[]} are passed to
+ * {@link Renderer#value(long[])} and {@link Renderer#value(double[])} respectively.
  *
  * @since 1.1
  * @author Willi Schoenborn
@@ -33,51 +30,63 @@ public enum ArrayValueRenderer implements ValueRenderer<Object> {
 
     INSTANCE;
     
-    private final Set<Class<?>> longOrLess = ImmutableSet.<Class<?>>of(
-        byte.class, short.class, char.class, int.class, long.class
-    );
-    
-    private final Set<Class<?>> doubleOrLess = ImmutableSet.<Class<?>>of(
-        float.class, double.class
-    );
-    
     @Override
     public void render(@Nullable Object array, Renderer r) throws RenderingException {
         if (array == null) {
             r.nullValue();
+        } else if (array instanceof Object[]) {
+            r.value(Object[].class.cast(array));
+        } else if (array instanceof long[]) {
+            r.value((long[]) array);
+        } else if (array instanceof double[]) {
+            r.value((double[]) array);
         } else {
-            final Class<?> type = array.getClass();
-            assert type.isArray();
-            final Class<?> componentType = type.getComponentType();
-            
-            // to prevent auto-boxing
-            if (componentType.isPrimitive()) {
-                r.list();
-                renderPrimitiveArray(array, componentType, r);
-                r.endList();
-            } else {
-                r.value(Object[].class.cast(array));
-            }
+            assert array.getClass().isArray();
+            renderPrimitiveArray(array, r);
         }
     }
     
-    private void renderPrimitiveArray(Object array, Class<?> componentType, Renderer r) {
-        final int length = Array.getLength(array);
-        if (componentType == boolean.class) {
-            for (int i = 0; i < length; i++) {
-                r.value(Array.getBoolean(array, i));
+    private void renderPrimitiveArray(Object array, Renderer r) {
+        if (array instanceof int[]) {
+            final int[] values = (int[]) array;
+            r.list(values.length);
+            for (int value : values) {
+                r.value(value);
+            }
+        } else if (array instanceof boolean[]) {
+            final boolean[] values = (boolean[]) array;
+            r.list(values.length);
+            for (boolean value : values) {
+                r.value(value);
+            }
+        } else if (array instanceof float[]) {
+            final float[] values = (float[]) array;
+            r.list(values.length);
+            for (float value : values) {
+                r.value(value);
+            }
+        } else if (array instanceof short[]) {
+            final short[] values = (short[]) array;
+            r.list(values.length);
+            for (short value : values) {
+                r.value(value);
             }
-        } else if (longOrLess.contains(componentType)) {
-            for (int i = 0; i < length; i++) {
-                r.value(Array.getLong(array, i));
+        } else if (array instanceof char[]) {
+            final char[] values = (char[]) array;
+            r.list(values.length);
+            for (char value : values) {
+                r.value(value);
             }
-        } else if (doubleOrLess.contains(componentType)) {
-            for (int i = 0; i < length; i++) {
-                r.value(Array.getDouble(array, i));
+        } else if (array instanceof byte[]) {
+            final byte[] values = (byte[]) array;
+            r.list(values.length);
+            for (byte value : values) {
+                r.value(value);
             }
         } else {
-            throw new AssertionError("Unknown primitive component type: " + componentType);
+            throw new AssertionError("Unknown primitive component type: " + array.getClass().getComponentType());
         }
+        r.endList();
     }
     
     @Override
@@ -16,6 +16,8 @@
 
 package de.cosmocode.rendering;
 
+import java.io.ByteArrayInputStream;
+
 import javax.annotation.Nullable;
 
 import org.apache.commons.codec.binary.Base64;
@@ -23,7 +25,8 @@ import org.apache.commons.codec.binary.Base64;
 import com.google.common.base.Charsets;
 
 /**
- * Default {@code byte[]} {@link ValueRenderer}.
+ * Default {@code byte[]} {@link ValueRenderer}. Produces a Base64 encoded string,
+ * large arrays are encoded on the fly using {@link Renderer#value(java.io.Reader)}.
  *
  * @since 1.1
  * @author Willi Schoenborn
@@ -32,10 +35,17 @@ public enum ByteArrayValueRenderer implements ValueRenderer<byte[]> {
 
     INSTANCE;
     
+    /**
+     * Arrays larger than this are streamed instead of being encoded at once.
+     */
+    private static final int STREAMING_THRESHOLD = 8192;
+    
     @Override
     public void render(@Nullable byte[] value, Renderer r) throws RenderingException {
         if (value == null) {
             r.nullValue();
+        } else if (value.length > STREAMING_THRESHOLD) {
+            r.value(InputStreamValueRenderer.encode(new ByteArrayInputStream(value)));
         } else {
             r.value(new String(Base64.encodeBase64(value), Charsets.UTF_8));
         }
@@ -0,0 +1,179 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+
+/**
+ * A {@link ValueRenderer} decorator which memoizes the rendered output of values
+ * and replays it on subsequent calls, which skips walking the object graph
+ * and resolving {@link ValueRenderer}s again.
+ * 
+ * <p>
+ *   Values are cached by the key computed by the given function, e.g. an id combined
+ *   with a version. The least recently used entries are evicted once the cache exceeds its
+ *   maximum size. A cache instance renders at a single {@link RenderingLevel}, use one
+ *   instance per level:
+ * </p>
+ * <pre>
+ *   final ValueRenderer&lt;Item&gt; renderer = new CachingValueRenderer&lt;Item&gt;(
+ *       new ValueRenderer&lt;Item&gt;() {
+ *           
+ *           public void render(Item item, Renderer r) {
+ *               r.value(item, level);
+ *           }
+ *           
+ *       }, ITEM_ID_AND_VERSION, 10000);
+ *   mapping.put(Item.class, renderer);
+ * </pre>
+ * 
+ * <p>
+ *   The delegate renders into a recording which uses the {@link Mapping} passed at creation
+ *   time, not the mapping of the target renderer. Rendering a cached value must not depend
+ *   on anything but its key.
+ * </p>
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ * @param <T> the generic value type
+ */
+public final class CachingValueRenderer<T> implements ValueRenderer<T> {
+
+    private final ValueRenderer<? super T> delegate;
+    
+    private final Function<? super T, ?> key;
+    
+    private final int maximumSize;
+    
+    private final Mapping mapping;
+    
+    // guarded by itself
+    private final Map<Object, RecordingRenderer> cache;
+    
+    /**
+     * Creates a new {@link CachingValueRenderer} using {@link Mappings#defaultMapping()}.
+     * 
+     * @param delegate the renderer producing the cached output
+     * @param key the function computing the cache key of a value
+     * @param maximumSize the maximum number of cached values
+     * @throws NullPointerException if delegate or key is null
+     * @throws IllegalArgumentException if maximumSize is negative
+     */
+    public CachingValueRenderer(ValueRenderer<? super T> delegate, Function<? super T, ?> key, int maximumSize) {
+        this(delegate, key, maximumSize, Mappings.defaultMapping());
+    }
+    
+    /**
+     * Creates a new {@link CachingValueRenderer}.
+     * 
+     * @param delegate the renderer producing the cached output
+     * @param key the function computing the cache key of a value
+     * @param maximumSize the maximum number of cached values
+     * @param mapping the mapping being used while recording
+     * @throws NullPointerException if delegate, key or mapping is null
+     * @throws IllegalArgumentException if maximumSize is negative
+     */
+    public CachingValueRenderer(ValueRenderer<? super T> delegate, Function<? super T, ?> key, 
+        final int maximumSize, Mapping mapping) {
+        this.delegate = Preconditions.checkNotNull(delegate, "Delegate");
+        this.key = Preconditions.checkNotNull(key, "Key");
+        Preconditions.checkArgument(maximumSize >= 0, "MaximumSize must not be negative, but was %s", maximumSize);
+        this.maximumSize = maximumSize;
+        this.mapping = Preconditions.checkNotNull(mapping, "Mapping");
+        this.cache = new LinkedHashMap<Object, RecordingRenderer>(16, 0.75f, true) {
+            
+            private static final long serialVersionUID = 1L;
+            
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, RecordingRenderer> eldest) {
+                return size() > maximumSize;
+            }
+            
+        };
+    }
+    
+    @Override
+    public void render(@Nullable T value, Renderer r) throws RenderingException {
+        if (value == null) {
+            r.nullValue();
+        } else {
+            final Object k = key.apply(value);
+            if (k == null) {
+                delegate.render(value, r);
+            } else {
+                final RecordingRenderer cached;
+                synchronized (cache) {
+                    cached = cache.get(k);
+                }
+                if (cached == null) {
+                    final RecordingRenderer recorder = new RecordingRenderer();
+                    recorder.setMapping(mapping);
+                    delegate.render(value, recorder);
+                    synchronized (cache) {
+                        cache.put(k, recorder);
+                    }
+                    recorder.replay(r);
+                } else {
+                    cached.replay(r);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Removes the cached output of the value with the given key.
+     * 
+     * @param k the key of the value
+     */
+    public void invalidate(Object k) {
+        synchronized (cache) {
+            cache.remove(k);
+        }
+    }
+    
+    /**
+     * Removes all cached output.
+     */
+    public void invalidateAll() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+    
+    /**
+     * Provides the number of cached values.
+     * 
+     * @return the current size of the cache
+     */
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%s[%s, maximumSize=%s]", getClass().getSimpleName(), delegate, maximumSize);
+    }
+    
+}
@@ -0,0 +1,450 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+
+/**
+ * A streaming implementation of the {@link Renderer} interface which writes
+ * <a href="http://tools.ietf.org/html/rfc7049">CBOR</a> directly to an {@link OutputStream}.
+ *
+ * <p>
+ *   Lists and maps are written using indefinite lengths, so nothing has to be buffered.
+ *   Values rendered by {@link ByteArrayValueRenderer} and {@link InputStreamValueRenderer}
+ *   are written as raw byte strings instead of Base64 encoded text.
+ *   Doubles are written in single precision if this doesn't lose information.
+ * </p>
+ *
+ * <p>
+ *   Output is buffered internally and written to the underlying stream as soon as
+ *   the outermost structure has been closed. The stream will be flushed but never closed
+ *   by this renderer.
+ * </p>
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+public final class CborRenderer extends AbstractRenderer {
+
+    private static final int UNSIGNED = 0;
+    private static final int NEGATIVE = 1;
+    private static final int BYTES = 2;
+    private static final int TEXT = 3;
+    private static final int ARRAY = 4;
+    
+    private static final int INDEFINITE_BYTES = 0x5f;
+    private static final int INDEFINITE_TEXT = 0x7f;
+    private static final int INDEFINITE_ARRAY = 0x9f;
+    private static final int INDEFINITE_MAP = 0xbf;
+    private static final int FALSE = 0xf4;
+    private static final int TRUE = 0xf5;
+    private static final int NULL = 0xf6;
+    private static final int FLOAT = 0xfa;
+    private static final int DOUBLE = 0xfb;
+    private static final int BREAK = 0xff;
+    
+    private static final int BUFFER_SIZE = 8192;
+    
+    private final OutputStream out;
+    
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    
+    private int position;
+    
+    private final Deque<Mode> stack = new ArrayDeque<Mode>();
+    
+    private Mode mode = Mode.INITIAL;
+    
+    public CborRenderer(OutputStream out) {
+        this.out = Preconditions.checkNotNull(out, "Out");
+    }
+    
+    private void write(int b) {
+        if (position == buffer.length) {
+            drain();
+        }
+        buffer[position++] = (byte) b;
+    }
+    
+    private void write(byte[] bytes, int offset, int length) {
+        if (length > buffer.length - position) {
+            drain();
+        }
+        if (length > buffer.length) {
+            try {
+                out.write(bytes, offset, length);
+            } catch (IOException e) {
+                throw new RenderingException(e);
+            }
+        } else {
+            System.arraycopy(bytes, offset, buffer, position, length);
+            position += length;
+        }
+    }
+    
+    private void drain() {
+        try {
+            out.write(buffer, 0, position);
+        } catch (IOException e) {
+            throw new RenderingException(e);
+        }
+        position = 0;
+    }
+    
+    private void writeHeader(int major, long length) {
+        final int type = major << 5;
+        if (length < 24) {
+            write(type | (int) length);
+        } else if (length <= 0xFFL) {
+            write(type | 24);
+            write((int) length);
+        } else if (length <= 0xFFFFL) {
+            write(type | 25);
+            writeBigEndian(length, 2);
+        } else if (length <= 0xFFFFFFFFL) {
+            write(type | 26);
+            writeBigEndian(length, 4);
+        } else {
+            write(type | 27);
+            writeBigEndian(length, 8);
+        }
+    }
+    
+    private void writeBigEndian(long value, int bytes) {
+        for (int shift = (bytes - 1) * 8; shift >= 0; shift -= 8) {
+            write((int) (value >>> shift));
+        }
+    }
+    
+    private void writeLong(long value) {
+        if (value < 0) {
+            writeHeader(NEGATIVE, ~value);
+        } else {
+            writeHeader(UNSIGNED, value);
+        }
+    }
+    
+    private void writeDouble(double value) {
+        final float single = (float) value;
+        if (single == value || Double.isNaN(value)) {
+            write(FLOAT);
+            writeBigEndian(Float.floatToIntBits(single), 4);
+        } else {
+            write(DOUBLE);
+            writeBigEndian(Double.doubleToLongBits(value), 8);
+        }
+    }
+    
+    private void writeText(CharSequence value) {
+        final byte[] bytes;
+        if (value instanceof EncodedString) {
+            bytes = EncodedString.class.cast(value).utf8();
+        } else {
+            bytes = value.toString().getBytes(Charsets.UTF_8);
+        }
+        writeHeader(TEXT, bytes.length);
+        write(bytes, 0, bytes.length);
+    }
+    
+    private void writeBytes(byte[] bytes, int length) {
+        writeHeader(BYTES, length);
+        write(bytes, 0, length);
+    }
+    
+    private void open(Mode next, int b) {
+        mode.checkAllowed(next);
+        write(b);
+        stack.push(next);
+        mode = next;
+    }
+    
+    private Renderer close() {
+        stack.pop();
+        write(BREAK);
+        if (stack.isEmpty()) {
+            finish();
+        } else {
+            mode = stack.peek();
+        }
+        return this;
+    }
+    
+    private void finish() {
+        mode = Mode.DONE;
+        drain();
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new RenderingException(e);
+        }
+    }
+    
+    private void prepareValue() {
+        if (mode == Mode.LIST) {
+            return;
+        } else if (mode == Mode.KEY) {
+            mode = Mode.MAP;
+        } else {
+            throw new RenderingException(String.format("Appending only works in %s and %s", Mode.LIST, Mode.KEY));
+        }
+    }
+    
+    /**
+     * Prepares writing a definite length array, which may be the outermost structure.
+     * 
+     * @return true if the array is the outermost structure
+     */
+    private boolean prepareArray() {
+        if (mode == Mode.INITIAL) {
+            return true;
+        } else {
+            prepareValue();
+            return false;
+        }
+    }
+    
+    @Override
+    public Renderer list() throws RenderingException {
+        open(Mode.LIST, INDEFINITE_ARRAY);
+        return this;
+    }
+    
+    @Override
+    public Renderer endList() throws RenderingException {
+        if (mode == Mode.LIST) {
+            return close();
+        } else {
+            throw new RenderingException(String.format("endList is not allowed when in %s mode", mode));
+        }
+    }
+    
+    @Override
+    public Renderer map() throws RenderingException {
+        open(Mode.MAP, INDEFINITE_MAP);
+        return this;
+    }
+    
+    @Override
+    public Renderer endMap() throws RenderingException {
+        if (mode == Mode.MAP) {
+            return close();
+        } else {
+            throw new RenderingException(String.format("endMap is not allowed when in %s mode", mode));
+        }
+    }
+    
+    @Override
+    public Renderer key(@Nullable CharSequence key) throws RenderingException {
+        mode.checkAllowed(Mode.KEY);
+        writeText(key == null ? "null" : key);
+        mode = Mode.KEY;
+        return this;
+    }
+    
+    @Override
+    public Renderer nullValue() throws RenderingException {
+        prepareValue();
+        write(NULL);
+        return this;
+    }
+    
+    @Override
+    public Renderer value(boolean value) throws RenderingException {
+        prepareValue();
+        write(value ? TRUE : FALSE);
+        return this;
+    }
+    
+    @Override
+    public Renderer value(long value) throws RenderingException {
+        prepareValue();
+        writeLong(value);
+        return this;
+    }
+    
+    @Override
+    public Renderer value(double value) throws RenderingException {
+        prepareValue();
+        writeDouble(value);
+        return this;
+    }
+    
+    @Override
+    public Renderer value(@Nullable CharSequence value) throws RenderingException {
+        if (value == null) {
+            return nullValue();
+        } else {
+            prepareValue();
+            writeText(value);
+            return this;
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <p>
+     *   This implementation writes the value as an indefinite length text string
+     *   in chunks without reading it into memory at once.
+     * </p>
+     */
+    @Override
+    public Renderer value(@Nullable Reader value) throws RenderingException {
+        if (value == null) {
+            return nullValue();
+        } else {
+            prepareValue();
+            write(INDEFINITE_TEXT);
+            final char[] chars = new char[BUFFER_SIZE];
+            int offset = 0;
+            try {
+                int read;
+                while ((read = value.read(chars, offset, chars.length - offset)) != -1) {
+                    final int end = offset + read;
+                    // every chunk has to be valid UTF-8, surrogate pairs must not be split
+                    final boolean split = end > 0 && Character.isHighSurrogate(chars[end - 1]);
+                    final int length = split ? end - 1 : end;
+                    if (length > 0) {
+                        writeText(new String(chars, 0, length));
+                    }
+                    if (split) {
+                        chars[0] = chars[end - 1];
+                        offset = 1;
+                    } else {
+                        offset = 0;
+                    }
+                }
+            } catch (IOException e) {
+                throw new RenderingException(e);
+            }
+            if (offset > 0) {
+                writeText(new String(chars, 0, offset));
+            }
+            write(BREAK);
+            return this;
+        }
+    }
+    
+    @Override
+    public Renderer value(@Nullable long[] values) throws RenderingException {
+        if (values == null) {
+            return nullValue();
+        } else {
+            final boolean outermost = prepareArray();
+            writeHeader(ARRAY, values.length);
+            for (long value : values) {
+                writeLong(value);
+            }
+            if (outermost) {
+                finish();
+            }
+            return this;
+        }
+    }
+    
+    @Override
+    public Renderer value(@Nullable double[] values) throws RenderingException {
+        if (values == null) {
+            return nullValue();
+        } else {
+            final boolean outermost = prepareArray();
+            writeHeader(ARRAY, values.length);
+            for (double value : values) {
+                writeDouble(value);
+            }
+            if (outermost) {
+                finish();
+            }
+            return this;
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <p>
+     *   This implementation writes values of {@link ByteArrayValueRenderer} and
+     *   {@link InputStreamValueRenderer} as raw byte strings.
+     * </p>
+     */
+    @Override
+    public <T> Renderer value(@Nullable T value, ValueRenderer<? super T> renderer) throws RenderingException {
+        Preconditions.checkNotNull(renderer, "Renderer");
+        if (value == null) {
+            return super.value(value, renderer);
+        } else if (renderer == ByteArrayValueRenderer.INSTANCE) {
+            final byte[] bytes = (byte[]) value;
+            prepareValue();
+            writeBytes(bytes, bytes.length);
+            return this;
+        } else if (renderer == InputStreamValueRenderer.INSTANCE) {
+            return writeStream((InputStream) value);
+        } else {
+            return super.value(value, renderer);
+        }
+    }
+    
+    private Renderer writeStream(InputStream stream) {
+        prepareValue();
+        write(INDEFINITE_BYTES);
+        final byte[] chunk = new byte[BUFFER_SIZE];
+        try {
+            int read;
+            while ((read = stream.read(chunk)) != -1) {
+                if (read > 0) {
+                    writeBytes(chunk, read);
+                }
+            }
+        } catch (IOException e) {
+            throw new RenderingException(e);
+        } finally {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                throw new RenderingException(e);
+            }
+        }
+        write(BREAK);
+        return this;
+    }
+    
+    /**
+     * Returns the underlying stream after the outermost structure has been
+     * closed.
+     *
+     * @return the stream this renderer wrote to
+     * @throws RenderingException if the structure is not finished yet
+     */
+    @Override
+    public OutputStream build() throws RenderingException {
+        if (mode == Mode.DONE) {
+            assert stack.isEmpty();
+            return out;
+        } else {
+            throw new RenderingException(String.format("Structure not finished, current mode is %s", mode));
+        }
+    }
+    
+}
@@ -16,10 +16,15 @@
 
 package de.cosmocode.rendering;
 
+import java.util.concurrent.ConcurrentMap;
+
 import javax.annotation.Nullable;
 
+import com.google.common.collect.MapMaker;
+
 /**
- * A {@link ValueRenderer} for {@link Class}es.
+ * A {@link ValueRenderer} for {@link Class}es. Renders the {@link Class#getName() name}
+ * as a cached {@link EncodedString}.
  *
  * @since 1.3
  * @author Willi Schoenborn
@@ -28,12 +33,19 @@ public enum ClassValueRenderer implements ValueRenderer<Class<?>> {
 
     INSTANCE;
     
+    private static final ConcurrentMap<Class<?>, EncodedString> NAMES = new MapMaker().weakKeys().makeMap();
+    
     @Override
     public void render(@Nullable Class<?> value, Renderer r) throws RenderingException {
         if (value == null) {
             r.nullValue();
         } else {
-            r.value(value.getName());
+            EncodedString name = NAMES.get(value);
+            if (name == null) {
+                name = EncodedString.of(value.getName());
+                NAMES.put(value, name);
+            }
+            r.value(name);
         }
     }
     
@@ -16,29 +16,84 @@
 
 package de.cosmocode.rendering;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
-import org.apache.commons.collections.map.LinkedMap;
-
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
+import com.google.common.primitives.Doubles;
+import com.google.common.primitives.Longs;
 
 /**
  * An implementation of the {@link Renderer} interface which builds a 
  * structure of {@link List}s and {@link Map}s.
+ * 
+ * <p>
+ *   Lists are {@link ArrayList}s, maps are {@link LinkedHashMap}s which preserve
+ *   the order in which keys were added. {@link #list(int)} and {@link #map(int)}
+ *   can be used to pre-size structures if their size is known in advance.
+ * </p>
+ * 
+ * <p>
+ *   {@link #enableCompactMaps()} switches to an output mode for large amounts of
+ *   homogeneous records: maps with an identical sequence of keys share one array of keys
+ *   and only store their values. Such maps preserve the order of their keys as well,
+ *   but are unmodifiable.
+ * </p>
+ * 
+ * <p>
+ *   Keys are deduplicated using a small per-renderer cache, i.e. repeated keys are
+ *   converted to strings only once and share the same instance. {@link #enableValueDeduplication()}
+ *   does the same for short string values, which pays off for low-cardinality values
+ *   like status codes or enum names.
+ * </p>
  *
  * @author Willi Schoenborn
  */
 public final class CollectionRenderer extends AbstractRenderer {
 
-    private final Deque<Object> stack = Lists.newLinkedList();
+    private static final int KEY_TABLE_SIZE = 256;
+    
+    private static final int VALUE_TABLE_SIZE = 256;
+    
+    /**
+     * The maximum length of deduplicated values, longer values are unlikely to repeat.
+     */
+    private static final int MAX_VALUE_LENGTH = 32;
+    
+    private final Deque<Object> stack = new ArrayDeque<Object>();
+    
+    /**
+     * Keys of the enclosing maps waiting for their currently open nested structure,
+     * a list because keys may be null.
+     */
+    private final List<String> keys = Lists.newArrayList();
     
     private Mode mode = Mode.INITIAL;
     
+    /**
+     * The key waiting for its value when in {@link Mode#KEY}.
+     */
+    private String key;
+    
     private Object build;
     
+    /**
+     * The root of all shapes of compact maps, null if compact maps are disabled.
+     */
+    private ShapedMap.Shape shapes;
+    
+    private final StringTable keyTable = new StringTable(KEY_TABLE_SIZE);
+    
+    /**
+     * The cache of string values, null if value deduplication is disabled.
+     */
+    private StringTable valueTable;
+    
     private List<Object> peekList() {
         if (mode == Mode.LIST) {
             final Object peek = stack.element();
@@ -54,11 +109,13 @@ public final class CollectionRenderer extends AbstractRenderer {
         return stack.peek() instanceof List<?>;
     }
     
-    private LinkedMap peekMap() {
+    private Map<String, Object> peekMap() {
         if (mode == Mode.MAP || mode == Mode.KEY) {
             final Object peek = stack.element();
-            assert peek instanceof LinkedMap;
-            return LinkedMap.class.cast(peek);
+            assert peek instanceof LinkedHashMap<?, ?> || peek instanceof ShapedMap;
+            @SuppressWarnings("unchecked")
+            final Map<String, Object> map = Map.class.cast(peek);
+            return map;
         } else {
             throw new RenderingException(String.format("Expected mode to be %s, but was %s", Mode.MAP, mode));
         }
@@ -72,8 +129,8 @@ public final class CollectionRenderer extends AbstractRenderer {
         if (mode == Mode.LIST) {
             peekList().add(value);
         } else if (mode == Mode.KEY) {
-            final LinkedMap map = peekMap();
-            map.put(map.lastKey(), value);
+            peekMap().put(key, value);
+            key = null;
             mode = Mode.MAP;
         } else {
             throw new RenderingException(String.format("Appending only works in %s and %s", Mode.LIST, Mode.KEY));
@@ -81,32 +138,56 @@ public final class CollectionRenderer extends AbstractRenderer {
         return this;
     }
     
+    private void push(Object structure, Mode next) {
+        mode.checkAllowed(next);
+        if (mode == Mode.KEY) {
+            keys.add(key);
+            key = null;
+        }
+        stack.push(structure);
+        mode = next;
+    }
+    
+    private void pop() {
+        final Object popped = stack.pop();
+        final Object peek = popped instanceof ShapedMap ? ShapedMap.class.cast(popped).finish() : popped;
+        if (stack.isEmpty()) {
+            mode = Mode.DONE;
+            build = peek;
+        } else if (peekIsList()) {
+            mode = Mode.LIST;
+            peekList().add(peek);
+        } else if (peekIsMap()) {
+            mode = Mode.MAP;
+            peekMap().put(keys.remove(keys.size() - 1), peek);
+        } else {
+            throw new RenderingException("Unknown state");
+        }
+    }
+    
     @Override
     public Renderer list() throws RenderingException {
-        mode.checkAllowed(Mode.LIST);
-        stack.push(Lists.newLinkedList());
-        mode = Mode.LIST;
+        push(new ArrayList<Object>(), Mode.LIST);
+        return this;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <p>
+     *   This implementation pre-sizes the list to hold the specified number of elements.
+     * </p>
+     */
+    @Override
+    public CollectionRenderer list(int expectedSize) throws RenderingException {
+        Preconditions.checkArgument(expectedSize >= 0, "ExpectedSize must not be negative, but was %s", expectedSize);
+        push(new ArrayList<Object>(expectedSize), Mode.LIST);
         return this;
     }
     
     @Override
     public Renderer endList() throws RenderingException {
         if (mode == Mode.LIST) {
-            final List<Object> peek = peekList();
-            stack.pop();
-            if (stack.isEmpty()) {
-                mode = Mode.DONE;
-                build = peek;
-            } else if (peekIsList()) {
-                mode = Mode.LIST;
-                peekList().add(peek);
-            } else if (peekIsMap()) {
-                mode = Mode.MAP;
-                final LinkedMap map = peekMap();
-                map.put(map.lastKey(), peek);
-            } else {
-                throw new RenderingException("Unknown state");
-            }
+            pop();
             return this;
         } else {
             throw new RenderingException(String.format("endList is not allowed when in %s mode", mode));
@@ -115,30 +196,49 @@ public final class CollectionRenderer extends AbstractRenderer {
     
     @Override
     public Renderer map() throws RenderingException {
-        mode.checkAllowed(Mode.MAP);
-        stack.push(new LinkedMap());
-        mode = Mode.MAP;
+        if (shapes == null) {
+            push(new LinkedHashMap<String, Object>(), Mode.MAP);
+        } else {
+            push(new ShapedMap(shapes, 4), Mode.MAP);
+        }
         return this;
     }
     
+    /**
+     * {@inheritDoc}
+     * <p>
+     *   This implementation pre-sizes the map to hold the specified number of pairs.
+     * </p>
+     */
+    @Override
+    public CollectionRenderer map(int expectedSize) throws RenderingException {
+        Preconditions.checkArgument(expectedSize >= 0, "ExpectedSize must not be negative, but was %s", expectedSize);
+        if (shapes == null) {
+            push(new LinkedHashMap<String, Object>(capacity(expectedSize)), Mode.MAP);
+        } else {
+            push(new ShapedMap(shapes, expectedSize), Mode.MAP);
+        }
+        return this;
+    }
+    
+    /**
+     * Computes the initial capacity of a hash map which should hold
+     * expectedSize entries without being resized.
+     */
+    private static int capacity(int expectedSize) {
+        if (expectedSize < 3) {
+            return expectedSize + 1;
+        } else if (expectedSize < Integer.MAX_VALUE / 2) {
+            return expectedSize + expectedSize / 3;
+        } else {
+            return Integer.MAX_VALUE;
+        }
+    }
+    
     @Override
     public Renderer endMap() throws RenderingException {
         if (mode == Mode.MAP) {
-            final LinkedMap peek = peekMap();
-            stack.pop();
-            if (stack.isEmpty()) {
-                mode = Mode.DONE;
-                build = peek;
-            } else if (peekIsList()) {
-                mode = Mode.LIST;
-                peekList().add(peek);
-            } else if (peekIsMap()) {
-                mode = Mode.MAP;
-                final LinkedMap map = peekMap();
-                map.put(map.lastKey(), peek);
-            } else {
-                throw new RenderingException("Unknown state");
-            }
+            pop();
             return this;
         } else {
             throw new RenderingException(String.format("endMap is not allowed when in %s mode", mode));
@@ -148,7 +248,7 @@ public final class CollectionRenderer extends AbstractRenderer {
     @Override
     public Renderer key(CharSequence key) throws RenderingException {
         mode.checkAllowed(Mode.KEY);
-        peekMap().put(key == null ? null : key.toString(), null);
+        this.key = key == null ? null : keyTable.intern(key);
         mode = Mode.KEY;
         return this;
     }
@@ -165,7 +265,15 @@ public final class CollectionRenderer extends AbstractRenderer {
     
     @Override
     public Renderer value(CharSequence value) throws RenderingException {
-        return value == null ? nullValue() : append(value);
+        if (value == null) {
+            return nullValue();
+        } else if (valueTable != null && value.length() <= MAX_VALUE_LENGTH) {
+            return append(valueTable.intern(value));
+        } else if (value instanceof EncodedString) {
+            return append(value.toString());
+        } else {
+            return append(value);
+        }
     }
     
     /**
@@ -186,6 +294,42 @@ public final class CollectionRenderer extends AbstractRenderer {
         return append(value);
     }
     
+    /**
+     * {@inheritDoc}
+     * <p>
+     *   This implementation stores a fixed-size list backed by a copy
+     *   of the given array, elements are boxed lazily on access.
+     * </p>
+     */
+    @Override
+    public Renderer value(long[] values) throws RenderingException {
+        if (values == null) {
+            return nullValue();
+        } else {
+            push(Longs.asList(values.clone()), Mode.LIST);
+            pop();
+            return this;
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <p>
+     *   This implementation stores a fixed-size list backed by a copy
+     *   of the given array, elements are boxed lazily on access.
+     * </p>
+     */
+    @Override
+    public Renderer value(double[] values) throws RenderingException {
+        if (values == null) {
+            return nullValue();
+        } else {
+            push(Doubles.asList(values.clone()), Mode.LIST);
+            pop();
+            return this;
+        }
+    }
+    
     @Override
     public Object build() throws RenderingException {
         if (mode == Mode.DONE) {
@@ -196,5 +340,76 @@ public final class CollectionRenderer extends AbstractRenderer {
             throw new RenderingException(String.format("Structure not finished, current mode is %s", mode));
         }
     }
+    
+    /**
+     * Enables compact maps for all maps being opened from now on. Maps with an identical
+     * sequence of keys share one array of keys, which reduces the memory footprint
+     * of large lists of records considerably. Compact maps are unmodifiable and
+     * fall back to {@link LinkedHashMap}s if they hold more than 32 keys or if this
+     * renderer already created 1024 distinct key sequences, which bounds the memory
+     * used for maps whose keys differ from record to record.
+     * Compact maps are serializable and deserialize as {@link LinkedHashMap}s.
+     * 
+     * @since 1.3
+     */
+    public void enableCompactMaps() {
+        if (shapes == null) {
+            shapes = new ShapedMap.Shape();
+        }
+    }
+    
+    /**
+     * Disables compact maps, which is the default.
+     * 
+     * @since 1.3
+     */
+    public void disableCompactMaps() {
+        shapes = null;
+    }
+    
+    /**
+     * Enables deduplication of string values for all values being rendered from now on.
+     * Equal values of up to 32 characters will share the same {@link String} instance,
+     * as long as they repeat often enough to stay in a small cache.
+     * 
+     * @since 1.3
+     */
+    public void enableValueDeduplication() {
+        if (valueTable == null) {
+            valueTable = new StringTable(VALUE_TABLE_SIZE);
+        }
+    }
+    
+    /**
+     * Disables deduplication of string values, which is the default.
+     * 
+     * @since 1.3
+     */
+    public void disableValueDeduplication() {
+        valueTable = null;
+    }
+    
+    /**
+     * Resets this renderer to its initial state, which allows it to be reused.
+     * Structures returned by {@link #build()} are not affected. The internal buffers
+     * are kept, mapping and key mapping are reset to their defaults and cycle detection,
+     * compact maps and value deduplication are disabled.
+     * 
+     * @since 1.3
+     * @return this
+     */
+    public CollectionRenderer reset() {
+        stack.clear();
+        keys.clear();
+        key = null;
+        build = null;
+        mode = Mode.INITIAL;
+        setMapping(Mappings.defaultMapping());
+        setKeyMapping(KeyMappings.defaultMapping());
+        disableCycleDetection();
+        disableCompactMaps();
+        disableValueDeduplication();
+        return this;
+    }
 
 }
@@ -0,0 +1,104 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A thread-safe, bounded pool of {@link CollectionRenderer}s.
+ * 
+ * <p>
+ *   Renderers are {@link CollectionRenderer#reset() reset} when being released,
+ *   so their internal buffers can be reused by the next caller. Usage:
+ * </p>
+ * <pre>
+ *   final CollectionRenderer renderer = pool.acquire();
+ *   try {
+ *       return renderer.value(value).build();
+ *   } finally {
+ *       pool.release(renderer);
+ *   }
+ * </pre>
+ * 
+ * <p>
+ *   Released renderers must not be used by the caller anymore. 
+ * </p>
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+public final class CollectionRendererPool {
+
+    private final Queue<CollectionRenderer> renderers = new ConcurrentLinkedQueue<CollectionRenderer>();
+    
+    // ConcurrentLinkedQueue#size() is not a constant-time operation
+    private final AtomicInteger size = new AtomicInteger();
+    
+    private final int capacity;
+    
+    /**
+     * Creates a new pool which keeps at most capacity idle renderers.
+     * 
+     * @param capacity the maximum number of idle renderers
+     * @throws IllegalArgumentException if capacity is negative
+     */
+    public CollectionRendererPool(int capacity) {
+        Preconditions.checkArgument(capacity >= 0, "Capacity must not be negative, but was %s", capacity);
+        this.capacity = capacity;
+    }
+    
+    /**
+     * Takes an idle renderer from this pool or creates a new one if there is none.
+     * 
+     * @return a renderer in its initial state
+     */
+    public CollectionRenderer acquire() {
+        final CollectionRenderer renderer = renderers.poll();
+        if (renderer == null) {
+            return new CollectionRenderer();
+        } else {
+            size.decrementAndGet();
+            return renderer;
+        }
+    }
+    
+    /**
+     * Resets the given renderer and returns it to this pool, unless the pool is full.
+     * 
+     * @param renderer the renderer being released
+     * @throws NullPointerException if renderer is null
+     */
+    public void release(CollectionRenderer renderer) {
+        Preconditions.checkNotNull(renderer, "Renderer");
+        renderer.reset();
+        if (size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+        } else {
+            renderers.offer(renderer);
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%s[capacity=%s, idle=%s]", getClass().getSimpleName(), capacity, size);
+    }
+    
+}
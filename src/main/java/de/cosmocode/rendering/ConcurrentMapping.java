@@ -0,0 +1,106 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering;
+
+import java.util.Map;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ForwardingMap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+/**
+ * A thread-safe {@link Mapping} implementation for registries which are shared
+ * between threads and modified at runtime.
+ * 
+ * <p>
+ *   Reads, including {@link #find(Class)}, work on an immutable snapshot without any locking.
+ *   Modifications copy the current snapshot, apply the change and publish the result
+ *   atomically. Every snapshot carries its own cache of resolved types, which prevents
+ *   lookups running concurrently to a modification from caching stale results.
+ *   Modifications are therefore expensive and should be rare compared to lookups.
+ * </p>
+ * 
+ * <p>
+ *   The views returned by {@link #keySet()}, {@link #values()} and {@link #entrySet()}
+ *   are immutable snapshots.
+ * </p>
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+public final class ConcurrentMapping extends ForwardingMap<Class<?>, ValueRenderer<?>> implements Mapping {
+
+    private volatile SuperClassMapping snapshot;
+    
+    public ConcurrentMapping(Map<Class<?>, ValueRenderer<?>> renderers) {
+        Preconditions.checkNotNull(renderers, "Renderers");
+        this.snapshot = snapshotOf(renderers);
+    }
+    
+    private static SuperClassMapping snapshotOf(Map<Class<?>, ValueRenderer<?>> renderers) {
+        return new SuperClassMapping(ImmutableMap.copyOf(renderers));
+    }
+    
+    @Override
+    protected Map<Class<?>, ValueRenderer<?>> delegate() {
+        return snapshot;
+    }
+    
+    private Map<Class<?>, ValueRenderer<?>> copy() {
+        return Maps.newLinkedHashMap(snapshot);
+    }
+    
+    @Override
+    public synchronized ValueRenderer<?> put(Class<?> key, ValueRenderer<?> value) {
+        final Map<Class<?>, ValueRenderer<?>> copy = copy();
+        final ValueRenderer<?> old = copy.put(key, value);
+        snapshot = snapshotOf(copy);
+        return old;
+    }
+    
+    @Override
+    public synchronized void putAll(Map<? extends Class<?>, ? extends ValueRenderer<?>> map) {
+        final Map<Class<?>, ValueRenderer<?>> copy = copy();
+        copy.putAll(map);
+        snapshot = snapshotOf(copy);
+    }
+    
+    @Override
+    public synchronized ValueRenderer<?> remove(Object key) {
+        final SuperClassMapping current = snapshot;
+        if (current.containsKey(key)) {
+            final Map<Class<?>, ValueRenderer<?>> copy = copy();
+            final ValueRenderer<?> old = copy.remove(key);
+            snapshot = snapshotOf(copy);
+            return old;
+        } else {
+            return null;
+        }
+    }
+    
+    @Override
+    public synchronized void clear() {
+        snapshot = snapshotOf(ImmutableMap.<Class<?>, ValueRenderer<?>>of());
+    }
+    
+    @Override
+    public <T> ValueRenderer<T> find(Class<? extends T> type) {
+        return snapshot.find(type);
+    }
+    
+}
@@ -0,0 +1,232 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.MapMaker;
+
+/**
+ * A thread-safe {@link RenderingMetrics} implementation which counts
+ * all recorded events. Memory consumption is bounded by the number of
+ * value and {@link ValueRenderer} classes.
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+public final class CountingRenderingMetrics implements RenderingMetrics {
+
+    private volatile boolean enabled = true;
+    
+    private final AtomicLong lists = new AtomicLong();
+    
+    private final AtomicLong maps = new AtomicLong();
+    
+    private final AtomicLong keys = new AtomicLong();
+    
+    private final AtomicInteger maxDepth = new AtomicInteger();
+    
+    private final AtomicLong hits = new AtomicLong();
+    
+    private final AtomicLong misses = new AtomicLong();
+    
+    private final AtomicLong characters = new AtomicLong();
+    
+    // weak keys, metrics must not prevent classes from being unloaded
+    private final ConcurrentMap<Class<?>, AtomicLong> values = new MapMaker().weakKeys().makeMap();
+    
+    /**
+     * Nanoseconds per value renderer class, instances may be created per call.
+     */
+    private final ConcurrentMap<Class<?>, AtomicLong> nanos = new MapMaker().weakKeys().makeMap();
+    
+    /**
+     * Enables or disables this metrics. Only renderers instrumented
+     * afterwards are affected.
+     * 
+     * @param enabled the new state
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+    
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    @Override
+    public void onList(int depth) {
+        lists.incrementAndGet();
+        updateDepth(depth);
+    }
+    
+    @Override
+    public void onMap(int depth) {
+        maps.incrementAndGet();
+        updateDepth(depth);
+    }
+    
+    private void updateDepth(int depth) {
+        while (true) {
+            final int current = maxDepth.get();
+            if (depth <= current || maxDepth.compareAndSet(current, depth)) {
+                return;
+            }
+        }
+    }
+    
+    @Override
+    public void onKey() {
+        keys.incrementAndGet();
+    }
+    
+    @Override
+    public void onValue(Class<?> type) {
+        increment(values, type, 1L);
+    }
+    
+    @Override
+    public void onLookup(Class<?> type, boolean hit) {
+        if (hit) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+    }
+    
+    @Override
+    public void onValueRenderer(ValueRenderer<?> renderer, long time) {
+        increment(nanos, renderer.getClass(), time);
+    }
+    
+    @Override
+    public void onCharacters(long count) {
+        characters.addAndGet(count);
+    }
+    
+    private static <K> void increment(ConcurrentMap<K, AtomicLong> map, K key, long delta) {
+        final AtomicLong counter = map.get(key);
+        if (counter == null) {
+            final AtomicLong created = new AtomicLong();
+            final AtomicLong existing = map.putIfAbsent(key, created);
+            (existing == null ? created : existing).addAndGet(delta);
+        } else {
+            counter.addAndGet(delta);
+        }
+    }
+    
+    private static <K> Map<K, Long> snapshot(Map<K, AtomicLong> map) {
+        final ImmutableMap.Builder<K, Long> builder = ImmutableMap.builder();
+        for (Map.Entry<K, AtomicLong> entry : map.entrySet()) {
+            builder.put(entry.getKey(), entry.getValue().get());
+        }
+        return builder.build();
+    }
+    
+    /**
+     * Provides the number of rendered lists.
+     * 
+     * @return the number of lists
+     */
+    public long getLists() {
+        return lists.get();
+    }
+    
+    /**
+     * Provides the number of rendered maps.
+     * 
+     * @return the number of maps
+     */
+    public long getMaps() {
+        return maps.get();
+    }
+    
+    /**
+     * Provides the number of rendered keys.
+     * 
+     * @return the number of keys
+     */
+    public long getKeys() {
+        return keys.get();
+    }
+    
+    /**
+     * Provides the deepest nesting of lists and maps, the outermost structure having depth 1.
+     * 
+     * @return the maximum depth
+     */
+    public int getMaxDepth() {
+        return maxDepth.get();
+    }
+    
+    /**
+     * Provides the number of {@link ValueRenderer} lookups which found a renderer.
+     * 
+     * @return the number of successful lookups
+     */
+    public long getHits() {
+        return hits.get();
+    }
+    
+    /**
+     * Provides the number of {@link ValueRenderer} lookups which didn't find a renderer.
+     * 
+     * @return the number of failed lookups
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+    
+    /**
+     * Provides the number of characters of rendered strings and streamed values.
+     * 
+     * @return the number of characters
+     */
+    public long getCharacters() {
+        return characters.get();
+    }
+    
+    /**
+     * Provides a snapshot of the number of rendered values per type.
+     * 
+     * @return an immutable map of value types and their counts
+     */
+    public Map<Class<?>, Long> getValues() {
+        return snapshot(values);
+    }
+    
+    /**
+     * Provides a snapshot of the total time in nanoseconds spent per {@link ValueRenderer} class.
+     * 
+     * @return an immutable map of value renderer classes and their nanoseconds
+     */
+    public Map<Class<?>, Long> getNanos() {
+        return snapshot(nanos);
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%s[lists=%s, maps=%s, keys=%s, maxDepth=%s, hits=%s, misses=%s, characters=%s]",
+            getClass().getSimpleName(), lists, maps, keys, maxDepth, hits, misses, characters);
+    }
+    
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+/**
+ * Tracks the values currently being rendered by identity in order
+ * to detect cycles in object graphs.
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+final class CycleDetector {
+
+    private final Set<Object> open = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+    
+    private final Deque<Object> stack = new ArrayDeque<Object>();
+    
+    private final ValueRenderer<Object> placeholder;
+    
+    /**
+     * Creates a new detector.
+     * 
+     * @param placeholder the renderer for values which close a cycle, null to fail
+     */
+    CycleDetector(@Nullable ValueRenderer<Object> placeholder) {
+        this.placeholder = placeholder;
+    }
+    
+    /**
+     * Checks whether the given value is the innermost value being rendered, which is
+     * the case when a {@link ValueRenderer} delegates to a {@link Renderer} method
+     * using the very same value.
+     * 
+     * @param value the value
+     * @return true if value is the innermost value being rendered
+     */
+    boolean isCurrent(Object value) {
+        return stack.peek() == value;
+    }
+    
+    /**
+     * Marks the given value as being rendered. Calls returning true
+     * have to be followed by a call to {@link #exit()}.
+     * 
+     * @param value the value
+     * @return true if value has been entered, false if value closes a cycle
+     */
+    boolean enter(Object value) {
+        if (open.add(value)) {
+            stack.push(value);
+            return true;
+        } else {
+            return false;
+        }
+    }
+    
+    /**
+     * Marks the innermost value as rendered.
+     */
+    void exit() {
+        open.remove(stack.pop());
+    }
+    
+    /**
+     * Handles a value which closes a cycle.
+     * 
+     * @param value the value
+     * @param r the renderer being used to render the placeholder
+     * @throws RenderingException if no placeholder has been configured
+     */
+    void cycle(Object value, Renderer r) throws RenderingException {
+        if (placeholder == null) {
+            throw new RenderingException(String.format("Cycle detected at %s", value.getClass().getName()));
+        } else {
+            placeholder.render(value, r);
+        }
+    }
+    
+}
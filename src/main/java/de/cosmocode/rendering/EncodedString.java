@@ -0,0 +1,160 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering;
+
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.MapMaker;
+
+/**
+ * An immutable {@link CharSequence} which caches its encoded forms, e.g. the escaped
+ * json string or the UTF-8 bytes. Streaming renderers, like {@link JsonRenderer} and
+ * {@link CborRenderer}, recognize encoded strings passed to {@link Renderer#key(CharSequence)}
+ * and {@link Renderer#value(CharSequence)} and copy the cached form instead of
+ * encoding the same string over and over again. All other renderers treat encoded
+ * strings like any other character sequence.
+ * 
+ * <p>
+ *   Encoded strings pay off for strings which are rendered repeatedly, like keys and
+ *   constants, and should be created once and kept, e.g. in a static field.
+ *   {@link #of(Enum)} caches encoded strings for enum constants.
+ * </p>
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+public final class EncodedString implements CharSequence {
+
+    private static final ConcurrentMap<Class<?>, EncodedString[]> CONSTANTS = new MapMaker().weakKeys().makeMap();
+    
+    private final String value;
+    
+    private volatile String json;
+    
+    private volatile byte[] utf8;
+    
+    private EncodedString(String value) {
+        this.value = value;
+    }
+    
+    /**
+     * Creates an {@link EncodedString} of the given value.
+     * 
+     * @since 1.3
+     * @param value the value
+     * @return the given value if it already is an encoded string, a new encoded string otherwise
+     * @throws NullPointerException if value is null
+     */
+    public static EncodedString of(CharSequence value) {
+        Preconditions.checkNotNull(value, "Value");
+        if (value instanceof EncodedString) {
+            return EncodedString.class.cast(value);
+        } else {
+            return new EncodedString(value.toString());
+        }
+    }
+    
+    /**
+     * Returns the cached {@link EncodedString} of the {@link Enum#name() name} of the given constant.
+     * 
+     * @since 1.3
+     * @param constant the enum constant
+     * @return the encoded name of constant
+     * @throws NullPointerException if constant is null
+     */
+    public static EncodedString of(Enum<?> constant) {
+        Preconditions.checkNotNull(constant, "Constant");
+        final Class<?> type = constant.getDeclaringClass();
+        EncodedString[] names = CONSTANTS.get(type);
+        if (names == null) {
+            final Enum<?>[] constants = (Enum<?>[]) type.getEnumConstants();
+            names = new EncodedString[constants.length];
+            for (int i = 0; i < constants.length; i++) {
+                names[i] = new EncodedString(constants[i].name());
+            }
+            final EncodedString[] existing = CONSTANTS.putIfAbsent(type, names);
+            if (existing != null) {
+                names = existing;
+            }
+        }
+        return names[constant.ordinal()];
+    }
+    
+    /**
+     * Returns the quoted and escaped json representation of this string.
+     */
+    String json() {
+        // racy single-check, computing twice is harmless
+        String result = json;
+        if (result == null) {
+            result = JsonRenderer.quote(value);
+            json = result;
+        }
+        return result;
+    }
+    
+    /**
+     * Returns the UTF-8 encoded bytes of this string. The returned array must not be modified.
+     */
+    byte[] utf8() {
+        byte[] result = utf8;
+        if (result == null) {
+            result = value.getBytes(Charsets.UTF_8);
+            utf8 = result;
+        }
+        return result;
+    }
+    
+    @Override
+    public int length() {
+        return value.length();
+    }
+    
+    @Override
+    public char charAt(int index) {
+        return value.charAt(index);
+    }
+    
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return value.subSequence(start, end);
+    }
+    
+    @Override
+    public boolean equals(Object that) {
+        if (this == that) {
+            return true;
+        } else if (that instanceof EncodedString) {
+            return value.equals(EncodedString.class.cast(that).value);
+        } else {
+            return false;
+        }
+    }
+    
+    @Override
+    public int hashCode() {
+        return value.hashCode();
+    }
+    
+    @Override
+    public String toString() {
+        return value;
+    }
+    
+}
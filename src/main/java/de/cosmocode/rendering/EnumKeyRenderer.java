@@ -19,7 +19,8 @@ package de.cosmocode.rendering;
 import javax.annotation.Nullable;
 
 /**
- * An {@link Enum} {@link KeyRenderer}.
+ * An {@link Enum} {@link KeyRenderer}. {@link AbstractRenderer} renders keys resolved
+ * to this key renderer as cached {@link EncodedString}s of their {@link Enum#name() name}.
  *
  * @since 1.3
  * @author Willi Schoenborn
@@ -20,7 +20,8 @@ import javax.annotation.Nullable;
 
 
 /**
- * Default {@link Enum} {@link ValueRenderer}.
+ * Default {@link Enum} {@link ValueRenderer}. Renders the {@link Enum#name() name}
+ * as a cached {@link EncodedString}.
  *
  * @since 1.1 
  * @author Willi Schoenborn
@@ -34,7 +35,7 @@ public enum EnumValueRenderer implements ValueRenderer<Enum<?>> {
         if (value == null) {
             r.nullValue();
         } else {
-            r.value(value.name()); 
+            r.value(EncodedString.of(value));
         }
     }
     
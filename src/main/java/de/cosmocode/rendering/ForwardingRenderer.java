@@ -16,6 +16,7 @@
 
 package de.cosmocode.rendering;
 
+import java.io.Reader;
 import java.util.Iterator;
 import java.util.Map;
 
@@ -37,6 +38,12 @@ public abstract class ForwardingRenderer extends ForwardingObject implements Ren
         return this;
     }
 
+    @Override
+    public Renderer list(int expectedSize) throws RenderingException {
+        delegate().list(expectedSize);
+        return this;
+    }
+
     @Override
     public Renderer endList() throws RenderingException {
         delegate().endList();
@@ -49,6 +56,12 @@ public abstract class ForwardingRenderer extends ForwardingObject implements Ren
         return this;
     }
 
+    @Override
+    public Renderer map(int expectedSize) throws RenderingException {
+        delegate().map(expectedSize);
+        return this;
+    }
+
     @Override
     public Renderer endMap() throws RenderingException {
         delegate().endMap();
@@ -119,6 +132,12 @@ public abstract class ForwardingRenderer extends ForwardingObject implements Ren
         return this;
     }
 
+    @Override
+    public Renderer value(Reader value) throws RenderingException {
+        delegate().value(value);
+        return this;
+    }
+
     @Override
     public <T> Renderer values(T... values) throws RenderingException {
         delegate().values(values);
@@ -207,6 +226,18 @@ public abstract class ForwardingRenderer extends ForwardingObject implements Ren
         return this;
     }
 
+    @Override
+    public Renderer value(long[] values) throws RenderingException {
+        delegate().value(values);
+        return this;
+    }
+
+    @Override
+    public Renderer value(double[] values) throws RenderingException {
+        delegate().value(values);
+        return this;
+    }
+
     @Override
     public Renderer pairs(Map<?, ?> pairs) throws RenderingException {
         delegate().pairs(pairs);
@@ -18,13 +18,17 @@ package de.cosmocode.rendering;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
+import java.util.Arrays;
 
 import javax.annotation.Nullable;
 
-import com.google.common.io.ByteStreams;
+import org.apache.commons.codec.binary.Base64;
 
 /**
- * Default {@link InputStream} {@link ValueRenderer}.
+ * Default {@link InputStream} {@link ValueRenderer}. The stream is Base64 encoded
+ * while being read and passed to {@link Renderer#value(java.io.Reader)}, which allows
+ * streaming renderers to process it in chunks. The stream will be closed.
  *
  * @since 1.2
  * @author Willi Schoenborn
@@ -39,9 +43,7 @@ public enum InputStreamValueRenderer implements ValueRenderer<InputStream> {
             r.nullValue();
         } else {
             try {
-                r.value(ByteStreams.toByteArray(value));
-            } catch (IOException e) {
-                throw new RenderingException(e);
+                r.value(encode(value));
             } finally {
                 try {
                     value.close();
@@ -52,9 +54,96 @@ public enum InputStreamValueRenderer implements ValueRenderer<InputStream> {
         }
     }
     
+    /**
+     * Creates a reader which produces the Base64 encoded, unchunked
+     * contents of the given stream. Closing the reader closes the stream.
+     * 
+     * @param stream the raw stream
+     * @return a reader providing the encoded stream
+     */
+    static Reader encode(InputStream stream) {
+        return new Base64Reader(stream);
+    }
+    
     @Override
     public String toString() {
         return getClass().getSimpleName();
     }
     
+    /**
+     * A reader which encodes a stream in blocks of a multiple of three bytes,
+     * which allows to encode every block independently without padding in between.
+     * Replaces {@link org.apache.commons.codec.binary.Base64InputStream} which
+     * signals the end of some streams by returning 0 instead of -1 in commons-codec 1.4.
+     *
+     * @since 1.3
+     * @author Willi Schoenborn
+     */
+    private static final class Base64Reader extends Reader {
+        
+        private static final int BLOCK_SIZE = 3 * 1024;
+        
+        private static final byte[] EMPTY = new byte[0];
+        
+        private final InputStream stream;
+        
+        private final byte[] block = new byte[BLOCK_SIZE];
+        
+        private byte[] encoded = EMPTY;
+        
+        private int position;
+        
+        private boolean eof;
+        
+        public Base64Reader(InputStream stream) {
+            this.stream = stream;
+        }
+        
+        /**
+         * Reads and encodes the next block.
+         * 
+         * @return false if the end of the stream has been reached
+         */
+        private boolean fill() throws IOException {
+            int length = 0;
+            while (!eof && length < BLOCK_SIZE) {
+                final int read = stream.read(block, length, BLOCK_SIZE - length);
+                if (read == -1) {
+                    eof = true;
+                } else {
+                    length += read;
+                }
+            }
+            if (length == 0) {
+                return false;
+            } else {
+                encoded = Base64.encodeBase64(length == BLOCK_SIZE ? block : Arrays.copyOf(block, length));
+                position = 0;
+                return true;
+            }
+        }
+        
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            } else if (position == encoded.length && !fill()) {
+                return -1;
+            }
+            final int count = Math.min(length, encoded.length - position);
+            for (int i = 0; i < count; i++) {
+                // Base64 is plain ASCII
+                buffer[offset + i] = (char) encoded[position + i];
+            }
+            position += count;
+            return count;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            stream.close();
+        }
+        
+    }
+    
 }
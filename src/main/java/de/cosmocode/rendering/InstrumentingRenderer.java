@@ -0,0 +1,276 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A {@link Renderer} decorator which reports every rendering operation
+ * to a {@link RenderingMetrics} sink.
+ * 
+ * <p>
+ *   Composite operations, like {@link #value(Object)} or {@link #value(Iterable)},
+ *   are resolved by this renderer and only primitive operations are passed to the delegate.
+ *   This way nested values rendered by {@link ValueRenderer}s are recorded as well.
+ *   Use {@link #setMapping(Mapping)} and {@link #setKeyMapping(KeyMapping)} on this
+ *   renderer rather than on the delegate.
+ * </p>
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+public final class InstrumentingRenderer extends AbstractRenderer {
+
+    private final Renderer delegate;
+    
+    private final RenderingMetrics metrics;
+    
+    private Mapping mapping = Mappings.defaultMapping();
+    
+    private int depth;
+    
+    private InstrumentingRenderer(Renderer delegate, RenderingMetrics metrics) {
+        this.delegate = Preconditions.checkNotNull(delegate, "Delegate");
+        this.metrics = Preconditions.checkNotNull(metrics, "Metrics");
+    }
+    
+    /**
+     * Decorates the given renderer to report to the given metrics. Returns
+     * the renderer itself if the metrics are not {@link RenderingMetrics#isEnabled() enabled}.
+     * 
+     * @since 1.3
+     * @param renderer the renderer being instrumented
+     * @param metrics the metrics sink
+     * @return an instrumented renderer or renderer if metrics are disabled
+     * @throws NullPointerException if renderer or metrics is null
+     */
+    public static Renderer instrument(Renderer renderer, RenderingMetrics metrics) {
+        Preconditions.checkNotNull(renderer, "Renderer");
+        Preconditions.checkNotNull(metrics, "Metrics");
+        if (metrics.isEnabled()) {
+            return new InstrumentingRenderer(renderer, metrics);
+        } else {
+            return renderer;
+        }
+    }
+    
+    @Override
+    public void setMapping(Mapping mapping) {
+        super.setMapping(mapping);
+        this.mapping = mapping;
+    }
+    
+    @Override
+    public Renderer list() throws RenderingException {
+        delegate.list();
+        metrics.onList(++depth);
+        return this;
+    }
+    
+    @Override
+    public Renderer list(int expectedSize) throws RenderingException {
+        delegate.list(expectedSize);
+        metrics.onList(++depth);
+        return this;
+    }
+    
+    @Override
+    public Renderer endList() throws RenderingException {
+        delegate.endList();
+        depth--;
+        return this;
+    }
+    
+    @Override
+    public Renderer map() throws RenderingException {
+        delegate.map();
+        metrics.onMap(++depth);
+        return this;
+    }
+    
+    @Override
+    public Renderer map(int expectedSize) throws RenderingException {
+        delegate.map(expectedSize);
+        metrics.onMap(++depth);
+        return this;
+    }
+    
+    @Override
+    public Renderer endMap() throws RenderingException {
+        delegate.endMap();
+        depth--;
+        return this;
+    }
+    
+    @Override
+    public Renderer key(@Nullable CharSequence key) throws RenderingException {
+        delegate.key(key);
+        metrics.onKey();
+        return this;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <p>
+     *   This implementation looks up every value type in the current {@link Mapping},
+     *   including those which the default implementation renders directly, and reports
+     *   whether a renderer has been found.
+     * </p>
+     */
+    @Override
+    protected Renderer unknownValue(@Nullable Object value) throws RenderingException {
+        if (value == null) {
+            return nullValue();
+        } else {
+            final Class<?> type = value.getClass();
+            final ValueRenderer<Object> renderer = mapping.find(type);
+            metrics.onLookup(type, renderer != null);
+            if (renderer == null) {
+                throw new RenderingException("No renderer registered for " + type);
+            } else {
+                return value(value, renderer);
+            }
+        }
+    }
+    
+    @Override
+    public <T> Renderer value(@Nullable T value, ValueRenderer<? super T> renderer) throws RenderingException {
+        Preconditions.checkNotNull(renderer, "Renderer");
+        final long start = System.nanoTime();
+        super.value(value, renderer);
+        metrics.onValueRenderer(renderer, System.nanoTime() - start);
+        return this;
+    }
+    
+    @Override
+    public Renderer nullValue() throws RenderingException {
+        delegate.nullValue();
+        metrics.onValue(Void.class);
+        return this;
+    }
+    
+    @Override
+    public Renderer value(boolean value) throws RenderingException {
+        delegate.value(value);
+        metrics.onValue(boolean.class);
+        return this;
+    }
+    
+    @Override
+    public Renderer value(long value) throws RenderingException {
+        delegate.value(value);
+        metrics.onValue(long.class);
+        return this;
+    }
+    
+    @Override
+    public Renderer value(double value) throws RenderingException {
+        delegate.value(value);
+        metrics.onValue(double.class);
+        return this;
+    }
+    
+    @Override
+    public Renderer value(@Nullable CharSequence value) throws RenderingException {
+        delegate.value(value);
+        if (value == null) {
+            metrics.onValue(Void.class);
+        } else {
+            metrics.onValue(value.getClass());
+            metrics.onCharacters(value.length());
+        }
+        return this;
+    }
+    
+    @Override
+    public Renderer value(@Nullable Reader value) throws RenderingException {
+        if (value == null) {
+            return nullValue();
+        } else {
+            final CountingReader reader = new CountingReader(value);
+            delegate.value(reader);
+            metrics.onValue(Reader.class);
+            metrics.onCharacters(reader.count);
+            return this;
+        }
+    }
+    
+    @Override
+    public Renderer value(@Nullable long[] values) throws RenderingException {
+        delegate.value(values);
+        metrics.onValue(values == null ? Void.class : long[].class);
+        return this;
+    }
+    
+    @Override
+    public Renderer value(@Nullable double[] values) throws RenderingException {
+        delegate.value(values);
+        metrics.onValue(values == null ? Void.class : double[].class);
+        return this;
+    }
+    
+    @Override
+    public Object build() throws RenderingException {
+        return delegate.build();
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%s[%s]", getClass().getSimpleName(), delegate);
+    }
+    
+    /**
+     * A reader which counts the characters read.
+     *
+     * @since 1.3
+     * @author Willi Schoenborn
+     */
+    private static final class CountingReader extends FilterReader {
+        
+        private long count;
+        
+        public CountingReader(Reader in) {
+            super(in);
+        }
+        
+        @Override
+        public int read() throws IOException {
+            final int c = super.read();
+            if (c != -1) {
+                count++;
+            }
+            return c;
+        }
+        
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            final int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+        
+    }
+    
+}
@@ -0,0 +1,244 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ForwardingCollection;
+import com.google.common.collect.ForwardingIterator;
+import com.google.common.collect.ForwardingMapEntry;
+import com.google.common.collect.ForwardingSet;
+import com.google.common.collect.Iterators;
+
+/**
+ * Utility class providing collection views which run a callback
+ * after every modification. Used by mappings which cache their lookups
+ * to keep the cache in sync with modifications through
+ * {@link java.util.Map#keySet()}, {@link java.util.Map#values()} and {@link java.util.Map#entrySet()}.
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+final class InvalidatingViews {
+
+    private InvalidatingViews() {
+
+    }
+
+    /**
+     * Decorates the given set.
+     *
+     * @param <E> the generic element type
+     * @param set the backing set
+     * @param callback the callback being run on every modification
+     * @return a set which runs callback on every modification
+     */
+    static <E> Set<E> of(final Set<E> set, final Runnable callback) {
+        return new ForwardingSet<E>() {
+
+            @Override
+            protected Set<E> delegate() {
+                return set;
+            }
+
+            @Override
+            public Iterator<E> iterator() {
+                return InvalidatingViews.of(super.iterator(), callback);
+            }
+
+            @Override
+            public boolean add(E element) {
+                final boolean result = super.add(element);
+                callback.run();
+                return result;
+            }
+
+            @Override
+            public boolean addAll(Collection<? extends E> collection) {
+                final boolean result = super.addAll(collection);
+                callback.run();
+                return result;
+            }
+
+            @Override
+            public boolean remove(Object object) {
+                final boolean result = super.remove(object);
+                callback.run();
+                return result;
+            }
+
+            @Override
+            public boolean removeAll(Collection<?> collection) {
+                final boolean result = super.removeAll(collection);
+                callback.run();
+                return result;
+            }
+
+            @Override
+            public boolean retainAll(Collection<?> collection) {
+                final boolean result = super.retainAll(collection);
+                callback.run();
+                return result;
+            }
+
+            @Override
+            public void clear() {
+                super.clear();
+                callback.run();
+            }
+
+        };
+    }
+
+    /**
+     * Decorates the given collection.
+     *
+     * @param <E> the generic element type
+     * @param collection the backing collection
+     * @param callback the callback being run on every modification
+     * @return a collection which runs callback on every modification
+     */
+    static <E> Collection<E> of(final Collection<E> collection, final Runnable callback) {
+        return new ForwardingCollection<E>() {
+
+            @Override
+            protected Collection<E> delegate() {
+                return collection;
+            }
+
+            @Override
+            public Iterator<E> iterator() {
+                return InvalidatingViews.of(super.iterator(), callback);
+            }
+
+            @Override
+            public boolean add(E element) {
+                final boolean result = super.add(element);
+                callback.run();
+                return result;
+            }
+
+            @Override
+            public boolean addAll(Collection<? extends E> elements) {
+                final boolean result = super.addAll(elements);
+                callback.run();
+                return result;
+            }
+
+            @Override
+            public boolean remove(Object object) {
+                final boolean result = super.remove(object);
+                callback.run();
+                return result;
+            }
+
+            @Override
+            public boolean removeAll(Collection<?> elements) {
+                final boolean result = super.removeAll(elements);
+                callback.run();
+                return result;
+            }
+
+            @Override
+            public boolean retainAll(Collection<?> elements) {
+                final boolean result = super.retainAll(elements);
+                callback.run();
+                return result;
+            }
+
+            @Override
+            public void clear() {
+                super.clear();
+                callback.run();
+            }
+
+        };
+    }
+
+    /**
+     * Decorates the given entry set. In addition to the modifications supported by
+     * {@link #of(Set, Runnable)} this also covers {@link Entry#setValue(Object)}.
+     *
+     * @param <K> the generic key type
+     * @param <V> the generic value type
+     * @param entries the backing entry set
+     * @param callback the callback being run on every modification
+     * @return an entry set which runs callback on every modification
+     */
+    static <K, V> Set<Entry<K, V>> ofEntries(final Set<Entry<K, V>> entries, final Runnable callback) {
+        final Function<Entry<K, V>, Entry<K, V>> function = new Function<Entry<K, V>, Entry<K, V>>() {
+
+            @Override
+            public Entry<K, V> apply(final Entry<K, V> entry) {
+                return new ForwardingMapEntry<K, V>() {
+
+                    @Override
+                    protected Entry<K, V> delegate() {
+                        return entry;
+                    }
+
+                    @Override
+                    public V setValue(V value) {
+                        final V result = super.setValue(value);
+                        callback.run();
+                        return result;
+                    }
+
+                };
+            }
+
+        };
+
+        return new ForwardingSet<Entry<K, V>>() {
+
+            private final Set<Entry<K, V>> delegate = InvalidatingViews.of(entries, callback);
+
+            @Override
+            protected Set<Entry<K, V>> delegate() {
+                return delegate;
+            }
+
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return Iterators.transform(super.iterator(), function);
+            }
+
+        };
+    }
+
+    private static <E> Iterator<E> of(final Iterator<E> iterator, final Runnable callback) {
+        return new ForwardingIterator<E>() {
+
+            @Override
+            protected Iterator<E> delegate() {
+                return iterator;
+            }
+
+            @Override
+            public void remove() {
+                super.remove();
+                callback.run();
+            }
+
+        };
+    }
+
+}
@@ -0,0 +1,398 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+
+/**
+ * A streaming implementation of the {@link Renderer} interface which writes
+ * <a href="http://json.org">json</a> directly to an {@link Appendable}
+ * instead of building an in-memory structure.
+ *
+ * <p>
+ *   The underlying appendable will be flushed, if it is {@link Flushable},
+ *   as soon as the outermost structure has been closed. It will never be closed
+ *   by this renderer.
+ * </p>
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+public final class JsonRenderer extends AbstractRenderer {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final int BUFFER_SIZE = 4096;
+
+    private final Appendable out;
+
+    private final Deque<Mode> stack = new ArrayDeque<Mode>();
+
+    private Mode mode = Mode.INITIAL;
+
+    /**
+     * Whether the next element in the current structure has to be preceded by a comma.
+     */
+    private boolean comma;
+
+    public JsonRenderer(Appendable out) {
+        this.out = Preconditions.checkNotNull(out, "Out");
+    }
+
+    /**
+     * Creates a {@link JsonRenderer} which writes UTF-8 encoded json to the given stream.
+     *
+     * @param out the stream being written to
+     * @throws NullPointerException if out is null
+     */
+    public JsonRenderer(OutputStream out) {
+        this(new OutputStreamWriter(Preconditions.checkNotNull(out, "Out"), Charsets.UTF_8));
+    }
+
+    private void write(char c) {
+        try {
+            out.append(c);
+        } catch (IOException e) {
+            throw new RenderingException(e);
+        }
+    }
+
+    private void write(CharSequence sequence) {
+        try {
+            out.append(sequence);
+        } catch (IOException e) {
+            throw new RenderingException(e);
+        }
+    }
+
+    private void writeString(CharSequence value) {
+        if (value instanceof EncodedString) {
+            write(EncodedString.class.cast(value).json());
+        } else {
+            try {
+                out.append('"');
+                writeEscaped(out, value);
+                out.append('"');
+            } catch (IOException e) {
+                throw new RenderingException(e);
+            }
+        }
+    }
+
+    /**
+     * Quotes and escapes the given value.
+     *
+     * @param value the value
+     * @return the json string representing value
+     */
+    static String quote(CharSequence value) {
+        final StringBuilder builder = new StringBuilder(value.length() + 2);
+        builder.append('"');
+        try {
+            writeEscaped(builder, value);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return builder.append('"').toString();
+    }
+
+    private static void writeEscaped(Appendable out, CharSequence value) throws IOException {
+        final int length = value.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                // valid surrogate pair
+                i++;
+            } else if (c < 0x20 || c == '"' || c == '\\'
+                || (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE)) {
+                out.append(value, start, i);
+                escape(out, c);
+                start = i + 1;
+            }
+        }
+        out.append(value, start, length);
+    }
+
+    private static void escape(Appendable out, char c) throws IOException {
+        switch (c) {
+            case '"':
+                out.append("\\\"");
+                break;
+            case '\\':
+                out.append("\\\\");
+                break;
+            case '\b':
+                out.append("\\b");
+                break;
+            case '\f':
+                out.append("\\f");
+                break;
+            case '\n':
+                out.append("\\n");
+                break;
+            case '\r':
+                out.append("\\r");
+                break;
+            case '\t':
+                out.append("\\t");
+                break;
+            default:
+                // control characters and unpaired surrogates
+                out.append("\\u").append(HEX[c >> 12]).append(HEX[(c >> 8) & 0xF]);
+                out.append(HEX[(c >> 4) & 0xF]).append(HEX[c & 0xF]);
+                break;
+        }
+    }
+
+    private void separate() {
+        if (mode == Mode.LIST && comma) {
+            write(',');
+        }
+    }
+
+    private void open(Mode next, char c) {
+        mode.checkAllowed(next);
+        separate();
+        write(c);
+        stack.push(next);
+        mode = next;
+        comma = false;
+    }
+
+    private Renderer close(char c) {
+        stack.pop();
+        write(c);
+        if (stack.isEmpty()) {
+            mode = Mode.DONE;
+            flush();
+        } else {
+            mode = stack.peek();
+            comma = true;
+        }
+        return this;
+    }
+
+    private void flush() {
+        if (out instanceof Flushable) {
+            try {
+                Flushable.class.cast(out).flush();
+            } catch (IOException e) {
+                throw new RenderingException(e);
+            }
+        }
+    }
+
+    private void prepareValue() {
+        if (mode == Mode.LIST) {
+            separate();
+            comma = true;
+        } else if (mode == Mode.KEY) {
+            mode = Mode.MAP;
+            comma = true;
+        } else {
+            throw new RenderingException(String.format("Appending only works in %s and %s", Mode.LIST, Mode.KEY));
+        }
+    }
+
+    private Renderer append(CharSequence value, boolean quote) {
+        prepareValue();
+        if (quote) {
+            writeString(value);
+        } else {
+            write(value);
+        }
+        return this;
+    }
+
+    @Override
+    public Renderer list() throws RenderingException {
+        open(Mode.LIST, '[');
+        return this;
+    }
+
+    @Override
+    public Renderer endList() throws RenderingException {
+        if (mode == Mode.LIST) {
+            return close(']');
+        } else {
+            throw new RenderingException(String.format("endList is not allowed when in %s mode", mode));
+        }
+    }
+
+    @Override
+    public Renderer map() throws RenderingException {
+        open(Mode.MAP, '{');
+        return this;
+    }
+
+    @Override
+    public Renderer endMap() throws RenderingException {
+        if (mode == Mode.MAP) {
+            return close('}');
+        } else {
+            throw new RenderingException(String.format("endMap is not allowed when in %s mode", mode));
+        }
+    }
+
+    @Override
+    public Renderer key(CharSequence key) throws RenderingException {
+        mode.checkAllowed(Mode.KEY);
+        if (comma) {
+            write(',');
+        }
+        writeString(key == null ? "null" : key);
+        write(':');
+        mode = Mode.KEY;
+        return this;
+    }
+
+    @Override
+    public Renderer nullValue() throws RenderingException {
+        return append("null", false);
+    }
+
+    @Override
+    public Renderer value(boolean value) throws RenderingException {
+        return append(value ? "true" : "false", false);
+    }
+
+    @Override
+    public Renderer value(CharSequence value) throws RenderingException {
+        return value == null ? nullValue() : append(value, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     *   This implementation escapes and writes the value in chunks
+     *   without reading it into memory at once.
+     * </p>
+     */
+    @Override
+    public Renderer value(Reader value) throws RenderingException {
+        if (value == null) {
+            return nullValue();
+        } else {
+            prepareValue();
+            final char[] buffer = new char[BUFFER_SIZE];
+            int offset = 0;
+            try {
+                out.append('"');
+                int read;
+                while ((read = value.read(buffer, offset, buffer.length - offset)) != -1) {
+                    final int end = offset + read;
+                    // a high surrogate at the end may be completed by the next chunk
+                    final boolean split = end > 0 && Character.isHighSurrogate(buffer[end - 1]);
+                    writeEscaped(out, CharBuffer.wrap(buffer, 0, split ? end - 1 : end));
+                    if (split) {
+                        buffer[0] = buffer[end - 1];
+                        offset = 1;
+                    } else {
+                        offset = 0;
+                    }
+                }
+                // a pending high surrogate at the end of the stream is unpaired
+                writeEscaped(out, CharBuffer.wrap(buffer, 0, offset));
+                out.append('"');
+            } catch (IOException e) {
+                throw new RenderingException(e);
+            }
+            return this;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <strong>Note</strong>: {@link Double#NaN} and infinite values can't be expressed
+     * in json and will be rendered as null.
+     */
+    @Override
+    public Renderer value(double value) throws RenderingException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return nullValue();
+        } else {
+            return append(Double.toString(value), false);
+        }
+    }
+
+    @Override
+    public Renderer value(long value) throws RenderingException {
+        return append(Long.toString(value), false);
+    }
+
+    @Override
+    public Renderer value(long[] values) throws RenderingException {
+        if (values == null) {
+            return nullValue();
+        } else {
+            list();
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    write(',');
+                }
+                write(Long.toString(values[i]));
+            }
+            return endList();
+        }
+    }
+
+    @Override
+    public Renderer value(double[] values) throws RenderingException {
+        if (values == null) {
+            return nullValue();
+        } else {
+            list();
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    write(',');
+                }
+                final double value = values[i];
+                write(Double.isNaN(value) || Double.isInfinite(value) ? "null" : Double.toString(value));
+            }
+            return endList();
+        }
+    }
+
+    /**
+     * Returns the underlying appendable after the outermost structure has been
+     * closed.
+     *
+     * @return the appendable this renderer wrote to
+     * @throws RenderingException if the structure is not finished yet
+     */
+    @Override
+    public Appendable build() throws RenderingException {
+        if (mode == Mode.DONE) {
+            assert stack.isEmpty();
+            return out;
+        } else {
+            throw new RenderingException(String.format("Structure not finished, current mode is %s", mode));
+        }
+    }
+
+}
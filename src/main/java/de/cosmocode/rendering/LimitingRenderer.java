@@ -0,0 +1,276 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A {@link Renderer} decorator which enforces {@link RenderingLimits} and
+ * throws a {@link RenderingException} as soon as a limit is exceeded,
+ * before the delegate receives the offending operation.
+ * 
+ * <p>
+ *   Composite operations, like {@link #value(Object)} or {@link #value(Iterable)},
+ *   are resolved by this renderer and only primitive operations are passed to the delegate.
+ *   This way nested values rendered by {@link ValueRenderer}s are limited as well, e.g.
+ *   self-referencing maps hit the depth limit and endless iterators hit the size limit.
+ *   Use {@link #setMapping(Mapping)} and {@link #setKeyMapping(KeyMapping)} on this
+ *   renderer rather than on the delegate.
+ * </p>
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+public final class LimitingRenderer extends AbstractRenderer {
+
+    private final Renderer delegate;
+    
+    private final RenderingLimits limits;
+    
+    private int depth;
+    
+    /**
+     * Sizes of the currently open structures, indexed by depth, index 0 is unused.
+     */
+    private int[] sizes = new int[16];
+    
+    private long elements;
+    
+    private long characters;
+    
+    public LimitingRenderer(Renderer delegate, RenderingLimits limits) {
+        this.delegate = Preconditions.checkNotNull(delegate, "Delegate");
+        this.limits = Preconditions.checkNotNull(limits, "Limits");
+    }
+    
+    private void element() {
+        if (depth > 0 && ++sizes[depth] > limits.getMaxSize()) {
+            throw new RenderingException(String.format("Maximum size of %s exceeded", limits.getMaxSize()));
+        }
+        if (++elements > limits.getMaxElements()) {
+            throw new RenderingException(String.format("Maximum number of %s elements exceeded", 
+                limits.getMaxElements()));
+        }
+    }
+    
+    private void open(int size) {
+        element();
+        if (depth + 1 > limits.getMaxDepth()) {
+            throw new RenderingException(String.format("Maximum depth of %s exceeded", limits.getMaxDepth()));
+        }
+        depth++;
+        if (depth == sizes.length) {
+            sizes = Arrays.copyOf(sizes, sizes.length * 2);
+        }
+        sizes[depth] = 0;
+        if (size > limits.getMaxSize()) {
+            throw new RenderingException(String.format("Maximum size of %s exceeded", limits.getMaxSize()));
+        }
+    }
+    
+    private void close() {
+        if (depth > 0) {
+            depth--;
+        }
+    }
+    
+    private void characters(long count) {
+        characters += count;
+        if (characters > limits.getMaxCharacters()) {
+            throw new RenderingException(String.format("Maximum number of %s characters exceeded", 
+                limits.getMaxCharacters()));
+        }
+    }
+    
+    @Override
+    public Renderer list() throws RenderingException {
+        open(0);
+        delegate.list();
+        return this;
+    }
+    
+    @Override
+    public Renderer list(int expectedSize) throws RenderingException {
+        open(expectedSize);
+        delegate.list(expectedSize);
+        return this;
+    }
+    
+    @Override
+    public Renderer endList() throws RenderingException {
+        delegate.endList();
+        close();
+        return this;
+    }
+    
+    @Override
+    public Renderer map() throws RenderingException {
+        open(0);
+        delegate.map();
+        return this;
+    }
+    
+    @Override
+    public Renderer map(int expectedSize) throws RenderingException {
+        open(expectedSize);
+        delegate.map(expectedSize);
+        return this;
+    }
+    
+    @Override
+    public Renderer endMap() throws RenderingException {
+        delegate.endMap();
+        close();
+        return this;
+    }
+    
+    @Override
+    public Renderer key(@Nullable CharSequence key) throws RenderingException {
+        if (key != null) {
+            characters(key.length());
+        }
+        delegate.key(key);
+        return this;
+    }
+    
+    @Override
+    public Renderer nullValue() throws RenderingException {
+        element();
+        delegate.nullValue();
+        return this;
+    }
+    
+    @Override
+    public Renderer value(boolean value) throws RenderingException {
+        element();
+        delegate.value(value);
+        return this;
+    }
+    
+    @Override
+    public Renderer value(long value) throws RenderingException {
+        element();
+        delegate.value(value);
+        return this;
+    }
+    
+    @Override
+    public Renderer value(double value) throws RenderingException {
+        element();
+        delegate.value(value);
+        return this;
+    }
+    
+    @Override
+    public Renderer value(@Nullable CharSequence value) throws RenderingException {
+        element();
+        if (value != null) {
+            characters(value.length());
+        }
+        delegate.value(value);
+        return this;
+    }
+    
+    @Override
+    public Renderer value(@Nullable Reader value) throws RenderingException {
+        element();
+        delegate.value(value == null ? null : new LimitedReader(value));
+        return this;
+    }
+    
+    @Override
+    public Renderer value(@Nullable long[] values) throws RenderingException {
+        if (values == null) {
+            return nullValue();
+        } else {
+            primitiveArray(values.length);
+            delegate.value(values);
+            return this;
+        }
+    }
+    
+    @Override
+    public Renderer value(@Nullable double[] values) throws RenderingException {
+        if (values == null) {
+            return nullValue();
+        } else {
+            primitiveArray(values.length);
+            delegate.value(values);
+            return this;
+        }
+    }
+    
+    private void primitiveArray(int length) {
+        open(length);
+        elements += length;
+        if (elements > limits.getMaxElements()) {
+            throw new RenderingException(String.format("Maximum number of %s elements exceeded", 
+                limits.getMaxElements()));
+        }
+        close();
+    }
+    
+    @Override
+    public Object build() throws RenderingException {
+        return delegate.build();
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%s[%s, %s]", getClass().getSimpleName(), delegate, limits);
+    }
+    
+    /**
+     * A reader which enforces the character limit while being read.
+     *
+     * @since 1.3
+     * @author Willi Schoenborn
+     */
+    private final class LimitedReader extends FilterReader {
+        
+        public LimitedReader(Reader in) {
+            super(in);
+        }
+        
+        @Override
+        public int read() throws IOException {
+            final int c = super.read();
+            if (c != -1) {
+                characters(1);
+            }
+            return c;
+        }
+        
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            final int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                characters(read);
+            }
+            return read;
+        }
+        
+    }
+    
+}
@@ -172,7 +172,7 @@ public final class Mappings {
      *   <tr>
      *     <td>{@link InputStream}</td>
      *     <td>{@link InputStreamValueRenderer}</td>
-     *     <td>collects all bytes</td>
+     *     <td>produces a Base64 encoded stream and delegates to {@link Renderer#value(java.io.Reader)}</td>
      *   </tr>
      *   <tr>
      *     <td>{@link Integer} and {@code int}</td>
@@ -248,6 +248,17 @@ public final class Mappings {
         return newMapping(Maps.newHashMap(Mappings.defaultMapping()));
     }
 
+    /**
+     * Returns a new thread-safe {@link Mapping} populated with the default mapping entries.
+     * Lookups on the returned mapping never block, see {@link ConcurrentMapping} for details.
+     * 
+     * @since 1.3
+     * @return a mutable, thread-safe mapping
+     */
+    public static Mapping newConcurrentMapping() {
+        return new ConcurrentMapping(Mappings.defaultMapping());
+    }
+
     /**
      * Returns a mapping backed by the given map
      * Changes in the supplied map will be visible in the returned mapping and
@@ -0,0 +1,185 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+
+/**
+ * A {@link ValueRenderer} which renders the elements of an {@link Iterable}
+ * in parallel and splices the results back into a list in their original order.
+ * 
+ * <p>
+ *   Elements are partitioned into chunks, each chunk is rendered into a recording
+ *   by a task submitted to the given {@link ExecutorService}, except the first one
+ *   which is rendered by the calling thread. The recordings are replayed on the target
+ *   renderer in order, so this works with every {@link Renderer} implementation.
+ *   Instead of waiting for a task which hasn't been started yet, the calling thread
+ *   runs it itself. Nested usage on the same bounded executor and saturated or
+ *   rejecting executors therefore can't deadlock, they just reduce parallelism.
+ * </p>
+ * 
+ * <p>
+ *   Elements are rendered using {@link Renderer#value(Object)} and the {@link Mapping}
+ *   passed at creation time, not the mapping of the target renderer. Elements must be
+ *   safe to render concurrently. This is usually only worth it for large lists of
+ *   expensive elements, e.g. {@link Renderable}s.
+ * </p>
+ * 
+ * <p>
+ *   Since elements are rendered into separate recordings, the target renderer only sees
+ *   primitive operations: its cycle detection doesn't apply to elements and limits,
+ *   e.g. of a {@link LimitingRenderer}, are only enforced while replaying, i.e. after
+ *   a chunk has been rendered completely.
+ * </p>
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+public final class ParallelValueRenderer implements ValueRenderer<Iterable<?>> {
+
+    private final ExecutorService executor;
+    
+    private final int chunkSize;
+    
+    private final Mapping mapping;
+    
+    /**
+     * Creates a new {@link ParallelValueRenderer} which uses {@link Mappings#defaultMapping()}.
+     * 
+     * @param executor the executor running the chunks
+     * @param chunkSize the number of elements per chunk
+     * @throws NullPointerException if executor is null
+     * @throws IllegalArgumentException if chunkSize is not positive
+     */
+    public ParallelValueRenderer(ExecutorService executor, int chunkSize) {
+        this(executor, chunkSize, Mappings.defaultMapping());
+    }
+    
+    /**
+     * Creates a new {@link ParallelValueRenderer}.
+     * 
+     * @param executor the executor running the chunks
+     * @param chunkSize the number of elements per chunk
+     * @param mapping the mapping used to render elements
+     * @throws NullPointerException if executor or mapping is null
+     * @throws IllegalArgumentException if chunkSize is not positive
+     */
+    public ParallelValueRenderer(ExecutorService executor, int chunkSize, Mapping mapping) {
+        this.executor = Preconditions.checkNotNull(executor, "Executor");
+        Preconditions.checkArgument(chunkSize > 0, "ChunkSize must be positive, but was %s", chunkSize);
+        this.chunkSize = chunkSize;
+        this.mapping = Preconditions.checkNotNull(mapping, "Mapping");
+    }
+    
+    @Override
+    public void render(@Nullable Iterable<?> values, Renderer r) throws RenderingException {
+        if (values == null) {
+            r.nullValue();
+        } else {
+            final Iterator<? extends List<?>> chunks = Iterables.partition(values, chunkSize).iterator();
+            if (values instanceof Collection<?>) {
+                r.list(Collection.class.cast(values).size());
+            } else {
+                r.list();
+            }
+            if (chunks.hasNext()) {
+                final List<?> first = chunks.next();
+                final List<FutureTask<RecordingRenderer>> tasks = Lists.newArrayList();
+                try {
+                    while (chunks.hasNext()) {
+                        final FutureTask<RecordingRenderer> task = task(chunks.next());
+                        tasks.add(task);
+                        try {
+                            executor.execute(task);
+                        } catch (RejectedExecutionException e) {
+                            // the calling thread runs rejected tasks itself
+                            assert !task.isDone();
+                        }
+                    }
+                    record(first).replay(r);
+                    for (FutureTask<RecordingRenderer> task : tasks) {
+                        // caller-runs, does nothing if the task has already been started
+                        task.run();
+                        get(task).replay(r);
+                    }
+                } finally {
+                    for (FutureTask<RecordingRenderer> task : tasks) {
+                        task.cancel(true);
+                    }
+                }
+            }
+            r.endList();
+        }
+    }
+    
+    private FutureTask<RecordingRenderer> task(final List<?> chunk) {
+        return new FutureTask<RecordingRenderer>(new Callable<RecordingRenderer>() {
+            
+            @Override
+            public RecordingRenderer call() {
+                return record(chunk);
+            }
+            
+        });
+    }
+    
+    private RecordingRenderer record(List<?> chunk) {
+        final RecordingRenderer recorder = new RecordingRenderer();
+        recorder.setMapping(mapping);
+        for (Object value : chunk) {
+            recorder.value(value);
+        }
+        return recorder;
+    }
+    
+    private RecordingRenderer get(FutureTask<RecordingRenderer> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RenderingException(e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw RuntimeException.class.cast(cause);
+            } else if (cause instanceof Error) {
+                throw Error.class.cast(cause);
+            } else {
+                throw new RenderingException(cause);
+            }
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%s[chunkSize=%s]", getClass().getSimpleName(), chunkSize);
+    }
+    
+}
@@ -0,0 +1,306 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering;
+
+import java.util.Arrays;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A {@link Renderer} which records all primitive operations in order to
+ * {@link #replay(Renderer)} them later, any number of times and on any renderer.
+ * 
+ * <p>
+ *   Operations are stored in a compact buffer of primitive arrays: one byte per operation,
+ *   numbers as longs and strings and arrays as references. No structure is being built
+ *   and no numbers are boxed, which makes recording considerably cheaper
+ *   than building the structure of a {@link CollectionRenderer}.
+ * </p>
+ * 
+ * <p>
+ *   This renderer records fragments, i.e. it doesn't validate the structure of the
+ *   recorded operations and accepts any number of values outside of lists and maps.
+ *   Validation takes place when the recording is replayed. Recordings are not thread-safe
+ *   while being recorded, but can be replayed concurrently afterwards.
+ * </p>
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+public final class RecordingRenderer extends AbstractRenderer {
+
+    private static final byte LIST = 0;
+    private static final byte LIST_SIZED = 1;
+    private static final byte END_LIST = 2;
+    private static final byte MAP = 3;
+    private static final byte MAP_SIZED = 4;
+    private static final byte END_MAP = 5;
+    private static final byte KEY = 6;
+    private static final byte NULL = 7;
+    private static final byte TRUE = 8;
+    private static final byte FALSE = 9;
+    private static final byte LONG = 10;
+    private static final byte DOUBLE = 11;
+    private static final byte STRING = 12;
+    private static final byte LONG_ARRAY = 13;
+    private static final byte DOUBLE_ARRAY = 14;
+    
+    private static final int INITIAL_CAPACITY = 16;
+    
+    private byte[] events = new byte[INITIAL_CAPACITY];
+    private int eventCount;
+    
+    /**
+     * Long values, raw bits of double values and structure sizes.
+     */
+    private long[] numbers = new long[INITIAL_CAPACITY];
+    private int numberCount;
+    
+    /**
+     * Keys, strings and primitive arrays.
+     */
+    private Object[] references = new Object[INITIAL_CAPACITY];
+    private int referenceCount;
+    
+    private void event(byte event) {
+        if (eventCount == events.length) {
+            events = Arrays.copyOf(events, eventCount * 2);
+        }
+        events[eventCount++] = event;
+    }
+    
+    private void number(long number) {
+        if (numberCount == numbers.length) {
+            numbers = Arrays.copyOf(numbers, numberCount * 2);
+        }
+        numbers[numberCount++] = number;
+    }
+    
+    private void reference(Object reference) {
+        if (referenceCount == references.length) {
+            references = Arrays.copyOf(references, referenceCount * 2);
+        }
+        references[referenceCount++] = reference;
+    }
+    
+    @Override
+    public Renderer list() throws RenderingException {
+        event(LIST);
+        return this;
+    }
+    
+    @Override
+    public Renderer list(int expectedSize) throws RenderingException {
+        Preconditions.checkArgument(expectedSize >= 0, "ExpectedSize must not be negative, but was %s", expectedSize);
+        event(LIST_SIZED);
+        number(expectedSize);
+        return this;
+    }
+    
+    @Override
+    public Renderer endList() throws RenderingException {
+        event(END_LIST);
+        return this;
+    }
+    
+    @Override
+    public Renderer map() throws RenderingException {
+        event(MAP);
+        return this;
+    }
+    
+    @Override
+    public Renderer map(int expectedSize) throws RenderingException {
+        Preconditions.checkArgument(expectedSize >= 0, "ExpectedSize must not be negative, but was %s", expectedSize);
+        event(MAP_SIZED);
+        number(expectedSize);
+        return this;
+    }
+    
+    @Override
+    public Renderer endMap() throws RenderingException {
+        event(END_MAP);
+        return this;
+    }
+    
+    @Override
+    public Renderer key(@Nullable CharSequence key) throws RenderingException {
+        event(KEY);
+        reference(key == null ? null : immutable(key));
+        return this;
+    }
+    
+    /**
+     * Strings and encoded strings are immutable, other sequences may change after being recorded.
+     */
+    private static CharSequence immutable(CharSequence sequence) {
+        return sequence instanceof EncodedString ? sequence : sequence.toString();
+    }
+    
+    @Override
+    public Renderer nullValue() throws RenderingException {
+        event(NULL);
+        return this;
+    }
+    
+    @Override
+    public Renderer value(boolean value) throws RenderingException {
+        event(value ? TRUE : FALSE);
+        return this;
+    }
+    
+    @Override
+    public Renderer value(long value) throws RenderingException {
+        event(LONG);
+        number(value);
+        return this;
+    }
+    
+    @Override
+    public Renderer value(double value) throws RenderingException {
+        event(DOUBLE);
+        number(Double.doubleToRawLongBits(value));
+        return this;
+    }
+    
+    @Override
+    public Renderer value(@Nullable CharSequence value) throws RenderingException {
+        if (value == null) {
+            return nullValue();
+        } else {
+            event(STRING);
+            reference(immutable(value));
+            return this;
+        }
+    }
+    
+    @Override
+    public Renderer value(@Nullable long[] values) throws RenderingException {
+        if (values == null) {
+            return nullValue();
+        } else {
+            event(LONG_ARRAY);
+            reference(values.clone());
+            return this;
+        }
+    }
+    
+    @Override
+    public Renderer value(@Nullable double[] values) throws RenderingException {
+        if (values == null) {
+            return nullValue();
+        } else {
+            event(DOUBLE_ARRAY);
+            reference(values.clone());
+            return this;
+        }
+    }
+    
+    /**
+     * Checks whether this recording contains any operations.
+     * 
+     * @return true if nothing has been recorded yet
+     */
+    public boolean isEmpty() {
+        return eventCount == 0;
+    }
+    
+    /**
+     * Replays all recorded operations on the given renderer.
+     * 
+     * @param renderer the target renderer
+     * @return the target renderer
+     * @throws NullPointerException if renderer is null
+     * @throws RenderingException if the target renderer rejects the recorded operations
+     */
+    public Renderer replay(Renderer renderer) throws RenderingException {
+        Preconditions.checkNotNull(renderer, "Renderer");
+        int number = 0;
+        int reference = 0;
+        for (int i = 0; i < eventCount; i++) {
+            switch (events[i]) {
+                case LIST:
+                    renderer.list();
+                    break;
+                case LIST_SIZED:
+                    renderer.list((int) numbers[number++]);
+                    break;
+                case END_LIST:
+                    renderer.endList();
+                    break;
+                case MAP:
+                    renderer.map();
+                    break;
+                case MAP_SIZED:
+                    renderer.map((int) numbers[number++]);
+                    break;
+                case END_MAP:
+                    renderer.endMap();
+                    break;
+                case KEY:
+                    renderer.key((CharSequence) references[reference++]);
+                    break;
+                case NULL:
+                    renderer.nullValue();
+                    break;
+                case TRUE:
+                    renderer.value(true);
+                    break;
+                case FALSE:
+                    renderer.value(false);
+                    break;
+                case LONG:
+                    renderer.value(numbers[number++]);
+                    break;
+                case DOUBLE:
+                    renderer.value(Double.longBitsToDouble(numbers[number++]));
+                    break;
+                case STRING:
+                    renderer.value((CharSequence) references[reference++]);
+                    break;
+                case LONG_ARRAY:
+                    // targets may modify the array, the recording has to stay intact
+                    renderer.value(((long[]) references[reference++]).clone());
+                    break;
+                case DOUBLE_ARRAY:
+                    renderer.value(((double[]) references[reference++]).clone());
+                    break;
+                default:
+                    throw new AssertionError("Unknown event " + events[i] + " at " + i);
+            }
+        }
+        return renderer;
+    }
+    
+    /**
+     * Returns this renderer, use {@link #replay(Renderer)} to access the recording.
+     * 
+     * @return this
+     */
+    @Override
+    public RecordingRenderer build() throws RenderingException {
+        return this;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%s[events=%s]", getClass().getSimpleName(), eventCount);
+    }
+    
+}
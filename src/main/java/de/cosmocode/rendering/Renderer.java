@@ -16,6 +16,7 @@
 
 package de.cosmocode.rendering;
 
+import java.io.Reader;
 import java.util.Iterator;
 import java.util.Map;
 
@@ -88,6 +89,19 @@ public interface Renderer extends Builder<Object> {
      */
     Renderer list() throws RenderingException;
     
+    /**
+     * Starts a list structure which is expected to contain the specified number
+     * of elements. The size is a hint only, implementations may use it to pre-size
+     * their structures but must not rely on it.
+     * 
+     * @since 1.3
+     * @param expectedSize the number of elements being added
+     * @return this
+     * @throws RenderingException if list is not allowed at the current position.
+     * @throws IllegalArgumentException if expectedSize is negative
+     */
+    Renderer list(int expectedSize) throws RenderingException;
+    
     /**
      * Ends a list structure.
      * 
@@ -104,6 +118,19 @@ public interface Renderer extends Builder<Object> {
      */
     Renderer map() throws RenderingException;
     
+    /**
+     * Starts a map structure which is expected to contain the specified number
+     * of pairs. The size is a hint only, implementations may use it to pre-size
+     * their structures but must not rely on it.
+     * 
+     * @since 1.3
+     * @param expectedSize the number of pairs being added
+     * @return this
+     * @throws RenderingException if map is not allowed at the current position
+     * @throws IllegalArgumentException if expectedSize is negative
+     */
+    Renderer map(int expectedSize) throws RenderingException;
+    
     /**
      * Ends a map structure.
      * 
@@ -216,6 +243,18 @@ public interface Renderer extends Builder<Object> {
      */
     Renderer value(@Nullable CharSequence value) throws RenderingException;
     
+    /**
+     * Adds the contents of the specified reader as a string value. This allows streaming
+     * implementations to write large values in chunks instead of holding
+     * them in memory at once. The reader will be consumed, but not closed.
+     * 
+     * @since 1.3
+     * @param value the reader providing the value
+     * @return this
+     * @throws RenderingException if no value is allowed at the current position or reading failed
+     */
+    Renderer value(@Nullable Reader value) throws RenderingException;
+    
     /**
      * Adds the specified values.
      * 
@@ -387,6 +426,30 @@ public interface Renderer extends Builder<Object> {
     Renderer value(@Nonnull Iterator<? extends Renderable> values, @Nonnull RenderingLevel level)
         throws RenderingException;
     
+    /**
+     * Adds the specified values as a list. This is equivalent to calling
+     * {@link #value(long)} for every element between {@link #list()} and {@link #endList()},
+     * but allows implementations to handle the whole array at once.
+     * 
+     * @since 1.3
+     * @param values the values being added
+     * @return this
+     * @throws RenderingException if list is not allowed at the current position
+     */
+    Renderer value(@Nullable long[] values) throws RenderingException;
+    
+    /**
+     * Adds the specified values as a list. This is equivalent to calling
+     * {@link #value(double)} for every element between {@link #list()} and {@link #endList()},
+     * but allows implementations to handle the whole array at once.
+     * 
+     * @since 1.3
+     * @param values the values being added
+     * @return this
+     * @throws RenderingException if list is not allowed at the current position
+     */
+    Renderer value(@Nullable double[] values) throws RenderingException;
+    
     /**
      * Adds the specified pairs. Pairs a basically a sequence of
      * {@code key(entry.getKey()).value(entry.getValue())} calls.
@@ -0,0 +1,134 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Immutable limits enforced by a {@link LimitingRenderer}.
+ * 
+ * <pre>
+ *   final RenderingLimits limits = RenderingLimits.unlimited().maxDepth(32).maxElements(100000);
+ * </pre>
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+public final class RenderingLimits {
+
+    private static final RenderingLimits UNLIMITED = 
+        new RenderingLimits(Integer.MAX_VALUE, Integer.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE);
+    
+    private final int maxDepth;
+    
+    private final int maxSize;
+    
+    private final long maxElements;
+    
+    private final long maxCharacters;
+    
+    private RenderingLimits(int maxDepth, int maxSize, long maxElements, long maxCharacters) {
+        this.maxDepth = maxDepth;
+        this.maxSize = maxSize;
+        this.maxElements = maxElements;
+        this.maxCharacters = maxCharacters;
+    }
+    
+    /**
+     * Provides limits which don't limit anything.
+     * 
+     * @return unlimited limits
+     */
+    public static RenderingLimits unlimited() {
+        return UNLIMITED;
+    }
+    
+    /**
+     * Creates a copy of these limits with the given maximum depth of nested lists and maps.
+     * 
+     * @param depth the maximum depth, 1 allows a single list or map
+     * @return new limits
+     * @throws IllegalArgumentException if depth is not positive
+     */
+    public RenderingLimits maxDepth(int depth) {
+        Preconditions.checkArgument(depth > 0, "Depth must be positive, but was %s", depth);
+        return new RenderingLimits(depth, maxSize, maxElements, maxCharacters);
+    }
+    
+    /**
+     * Creates a copy of these limits with the given maximum number of elements per list
+     * and pairs per map.
+     * 
+     * @param size the maximum size of a single list or map
+     * @return new limits
+     * @throws IllegalArgumentException if size is negative
+     */
+    public RenderingLimits maxSize(int size) {
+        Preconditions.checkArgument(size >= 0, "Size must not be negative, but was %s", size);
+        return new RenderingLimits(maxDepth, size, maxElements, maxCharacters);
+    }
+    
+    /**
+     * Creates a copy of these limits with the given maximum number of total elements, 
+     * i.e. values, lists and maps.
+     * 
+     * @param elements the maximum number of elements
+     * @return new limits
+     * @throws IllegalArgumentException if elements is negative
+     */
+    public RenderingLimits maxElements(long elements) {
+        Preconditions.checkArgument(elements >= 0, "Elements must not be negative, but was %s", elements);
+        return new RenderingLimits(maxDepth, maxSize, elements, maxCharacters);
+    }
+    
+    /**
+     * Creates a copy of these limits with the given maximum number of total characters
+     * in keys and string values. Binary values are usually rendered as Base64 encoded strings
+     * and therefore count with their encoded length.
+     * 
+     * @param characters the maximum number of characters
+     * @return new limits
+     * @throws IllegalArgumentException if characters is negative
+     */
+    public RenderingLimits maxCharacters(long characters) {
+        Preconditions.checkArgument(characters >= 0, "Characters must not be negative, but was %s", characters);
+        return new RenderingLimits(maxDepth, maxSize, maxElements, characters);
+    }
+    
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+    
+    public int getMaxSize() {
+        return maxSize;
+    }
+    
+    public long getMaxElements() {
+        return maxElements;
+    }
+    
+    public long getMaxCharacters() {
+        return maxCharacters;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%s[maxDepth=%s, maxSize=%s, maxElements=%s, maxCharacters=%s]",
+            getClass().getSimpleName(), maxDepth, maxSize, maxElements, maxCharacters);
+    }
+    
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering;
+
+/**
+ * A sink for metrics recorded by an {@link InstrumentingRenderer}.
+ * 
+ * <p>
+ *   Implementations are called on every rendering operation and should therefore
+ *   be cheap. Implementations shared between renderers have to be thread-safe.
+ * </p>
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+public interface RenderingMetrics {
+
+    /**
+     * Checks whether metrics should be recorded. This method is called once per
+     * renderer when {@link InstrumentingRenderer#instrument(Renderer, RenderingMetrics)}
+     * is called, disabled metrics don't cause any overhead.
+     * 
+     * @return true if metrics should be recorded, false otherwise
+     */
+    boolean isEnabled();
+    
+    /**
+     * Called when a list has been started.
+     * 
+     * @param depth the depth of the new list, 1 for outermost structures
+     */
+    void onList(int depth);
+    
+    /**
+     * Called when a map has been started.
+     * 
+     * @param depth the depth of the new map, 1 for outermost structures
+     */
+    void onMap(int depth);
+    
+    /**
+     * Called when a key has been rendered.
+     */
+    void onKey();
+    
+    /**
+     * Called when a single value has been rendered.
+     * 
+     * @param type the type of the value, {@code boolean.class}, {@code long.class}
+     *        and {@code double.class} for primitives and {@code Void.class} for null
+     */
+    void onValue(Class<?> type);
+    
+    /**
+     * Called when a {@link ValueRenderer} has been looked up using {@link Mapping#find(Class)}.
+     * 
+     * @param type the type being looked up
+     * @param hit true if a renderer has been found, false if the lookup failed
+     *        and the value can't be rendered
+     */
+    void onLookup(Class<?> type, boolean hit);
+    
+    /**
+     * Called when a {@link ValueRenderer} finished rendering a value.
+     * 
+     * @param renderer the value renderer
+     * @param nanos the time spent in the value renderer, including nested renderers
+     */
+    void onValueRenderer(ValueRenderer<?> renderer, long nanos);
+    
+    /**
+     * Called when a string or streamed value has been rendered.
+     * Binary values are usually rendered as Base64 encoded strings and therefore
+     * reported by their encoded length.
+     * 
+     * @param count the number of characters
+     */
+    void onCharacters(long count);
+    
+}
@@ -0,0 +1,164 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.SortedMap;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+
+/**
+ * A {@link ValueRenderer} which renders all {@link Rendered} properties
+ * of a type as a map. Getters and, where possible, the {@link ValueRenderer}s
+ * of the property types are resolved once when the plan is created.
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ * @param <T> the generic value type
+ */
+final class RenderingPlan<T> implements ValueRenderer<T> {
+
+    private final Class<T> type;
+    
+    private final EncodedString[] keys;
+    
+    private final Method[] getters;
+    
+    /**
+     * The resolved renderer per property or null if the renderer has to be 
+     * resolved per value because the property type can be sub classed.
+     */
+    private final ValueRenderer<Object>[] renderers;
+    
+    private final RenderingLevel level;
+    
+    @SuppressWarnings("unchecked")
+    RenderingPlan(Class<T> type, Mapping mapping, RenderingLevel level) {
+        this.type = Preconditions.checkNotNull(type, "Type");
+        Preconditions.checkNotNull(mapping, "Mapping");
+        this.level = Preconditions.checkNotNull(level, "Level");
+        
+        final SortedMap<String, Method> properties = Maps.newTreeMap();
+        for (Method method : type.getMethods()) {
+            final Rendered rendered = method.getAnnotation(Rendered.class);
+            // bridge methods carry the annotations of the methods they bridge to
+            if (rendered == null || method.isBridge()) {
+                continue;
+            } else {
+                Preconditions.checkArgument(!Modifier.isStatic(method.getModifiers()), "%s is static", method);
+                Preconditions.checkArgument(method.getParameterTypes().length == 0, "%s takes parameters", method);
+                Preconditions.checkArgument(method.getReturnType() != void.class, "%s returns void", method);
+                final String key = rendered.value().length() == 0 ? propertyName(method) : rendered.value();
+                final Method duplicate = properties.put(key, method);
+                Preconditions.checkArgument(duplicate == null, "%s and %s share key %s", method, duplicate, key);
+            }
+        }
+        
+        final int size = properties.size();
+        this.keys = new EncodedString[size];
+        this.getters = new Method[size];
+        this.renderers = newRenderers(size);
+        
+        int i = 0;
+        for (Map.Entry<String, Method> entry : properties.entrySet()) {
+            final Method getter = entry.getValue();
+            // public methods of non public classes are not accessible otherwise
+            getter.setAccessible(true);
+            keys[i] = EncodedString.of(entry.getKey());
+            getters[i] = getter;
+            renderers[i] = resolve(getter.getReturnType(), mapping);
+            i++;
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static ValueRenderer<Object>[] newRenderers(int size) {
+        return (ValueRenderer<Object>[]) new ValueRenderer<?>[size];
+    }
+    
+    private static String propertyName(Method method) {
+        final String name = method.getName();
+        final int prefix;
+        if (name.startsWith("get") && name.length() > 3) {
+            prefix = 3;
+        } else if (name.startsWith("is") && name.length() > 2) {
+            prefix = 2;
+        } else {
+            return name;
+        }
+        return Character.toLowerCase(name.charAt(prefix)) + name.substring(prefix + 1);
+    }
+    
+    private static ValueRenderer<Object> resolve(Class<?> returnType, Mapping mapping) {
+        if (Renderable.class.isAssignableFrom(returnType)) {
+            // rendered using the level of this plan
+            return null;
+        } else if (returnType.isPrimitive() || returnType.isArray() || returnType.isEnum() 
+            || Modifier.isFinal(returnType.getModifiers())) {
+            // no sub classes possible, every value resolves to the same renderer
+            return mapping.find(returnType);
+        } else {
+            return null;
+        }
+    }
+    
+    @Override
+    public void render(@Nullable T value, Renderer r) throws RenderingException {
+        if (value == null) {
+            r.nullValue();
+        } else {
+            r.map();
+            for (int i = 0; i < getters.length; i++) {
+                r.key(keys[i]);
+                final Object property = invoke(getters[i], value);
+                final ValueRenderer<Object> renderer = renderers[i];
+                if (property == null) {
+                    r.nullValue();
+                } else if (renderer != null) {
+                    r.value(property, renderer);
+                } else if (property instanceof Renderable) {
+                    r.value((Renderable) property, level);
+                } else {
+                    r.value(property);
+                }
+            }
+            r.endMap();
+        }
+    }
+    
+    private Object invoke(Method getter, T value) {
+        try {
+            return getter.invoke(value);
+        } catch (IllegalAccessException e) {
+            throw new RenderingException(e);
+        } catch (InvocationTargetException e) {
+            throw new RenderingException(e.getCause());
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%s[%s]", getClass().getSimpleName(), type.getName());
+    }
+    
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering;
+
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.MapMaker;
+
+/**
+ * Utility class for {@link ValueRenderer}s which render the {@link Rendered}
+ * properties of a type.
+ * 
+ * <p>
+ *   Plans are an alternative to implementing {@link Renderable} by hand.
+ *   All reflective work is done once per type, rendering a value is a fixed sequence
+ *   of getter calls and pre-resolved {@link ValueRenderer}s. Plans are usually
+ *   registered in a {@link Mapping}:
+ * </p>
+ * <pre>
+ *   final Mapping mapping = Mappings.newMapping();
+ *   mapping.put(Item.class, RenderingPlans.of(Item.class, mapping, Rendering.maxLevel()));
+ *   renderer.setMapping(mapping);
+ * </pre>
+ * 
+ * <p>
+ *   Renderers of properties whose type can't be sub classed, like primitives, 
+ *   {@link String}s or enums, are resolved using the mapping passed at creation time.
+ *   All other properties are passed to {@link Renderer#value(Object)}.
+ * </p>
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+public final class RenderingPlans {
+
+    // weak keys, the cache must not prevent classes from being unloaded
+    private static final ConcurrentMap<Class<?>, ValueRenderer<?>> CACHE = new MapMaker().weakKeys().makeMap();
+    
+    private RenderingPlans() {
+        
+    }
+    
+    /**
+     * Returns the cached plan for the given type using {@link Mappings#defaultMapping()}
+     * and {@link Rendering#maxLevel()} for nested {@link Renderable}s.
+     * 
+     * @since 1.3
+     * @param <T> the generic value type
+     * @param type the type being rendered
+     * @return a value renderer rendering all {@link Rendered} properties of type
+     * @throws NullPointerException if type is null
+     * @throws IllegalArgumentException if type contains invalid {@link Rendered} methods
+     */
+    public static <T> ValueRenderer<T> of(Class<T> type) {
+        Preconditions.checkNotNull(type, "Type");
+        @SuppressWarnings("unchecked")
+        final ValueRenderer<T> cached = (ValueRenderer<T>) CACHE.get(type);
+        if (cached == null) {
+            final ValueRenderer<T> plan = of(type, Mappings.defaultMapping(), Rendering.maxLevel());
+            CACHE.put(type, plan);
+            return plan;
+        } else {
+            return cached;
+        }
+    }
+    
+    /**
+     * Creates a new plan for the given type. The returned plan is not cached, callers
+     * should keep it, e.g. by registering it in a {@link Mapping}.
+     * 
+     * @since 1.3
+     * @param <T> the generic value type
+     * @param type the type being rendered
+     * @param mapping the mapping used to resolve property renderers
+     * @param level the level being passed to nested {@link Renderable}s
+     * @return a value renderer rendering all {@link Rendered} properties of type
+     * @throws NullPointerException if type, mapping or level is null
+     * @throws IllegalArgumentException if type contains invalid {@link Rendered} methods
+     */
+    public static <T> ValueRenderer<T> of(Class<T> type, Mapping mapping, RenderingLevel level) {
+        return new RenderingPlan<T>(type, mapping, level);
+    }
+    
+}
@@ -19,11 +19,22 @@ package de.cosmocode.rendering;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Types;
 
 import javax.annotation.Nullable;
 
+import com.google.common.base.Preconditions;
+
 /**
  * {@link ValueRenderer} for {@link ResultSet}s.
+ * 
+ * <p>
+ *   Rows are rendered while iterating the result set, so a streaming {@link Renderer}
+ *   renders arbitrary large result sets in constant memory. Integer, floating point, boolean
+ *   and character columns are passed directly to {@link Renderer#value(long)}, {@link Renderer#value(double)},
+ *   {@link Renderer#value(boolean)} and {@link Renderer#value(CharSequence)}, all other columns
+ *   are passed to {@link Renderer#value(Object)}.
+ * </p>
  *
  * @since 1.3
  * @author Willi Schoenborn
@@ -32,30 +43,71 @@ public enum ResultSetValueRenderer implements ValueRenderer<ResultSet> {
 
     INSTANCE;
     
+    private static final int LONG = 1;
+    private static final int DOUBLE = 2;
+    private static final int BOOLEAN = 3;
+    private static final int STRING = 4;
+    private static final int OBJECT = 5;
+    
     @Override
     public void render(@Nullable ResultSet results, Renderer r) throws RenderingException {
+        render(results, r, 0);
+    }
+    
+    /**
+     * Creates a {@link ValueRenderer} for {@link ResultSet}s which behaves like {@link #INSTANCE}
+     * but sets the given fetch size on every result set before iterating it.
+     * 
+     * @since 1.3
+     * @param fetchSize the number of rows being fetched from the database at once,
+     *        see {@link ResultSet#setFetchSize(int)}
+     * @return a new value renderer using the given fetch size
+     * @throws IllegalArgumentException if fetchSize is not positive
+     */
+    public static ValueRenderer<ResultSet> withFetchSize(final int fetchSize) {
+        Preconditions.checkArgument(fetchSize > 0, "FetchSize must be positive, but was %s", fetchSize);
+        return new ValueRenderer<ResultSet>() {
+            
+            @Override
+            public void render(@Nullable ResultSet results, Renderer r) throws RenderingException {
+                ResultSetValueRenderer.render(results, r, fetchSize);
+            }
+            
+            @Override
+            public String toString() {
+                return String.format("%s.withFetchSize(%s)", ResultSetValueRenderer.class.getSimpleName(), fetchSize);
+            }
+            
+        };
+    }
+    
+    private static void render(@Nullable ResultSet results, Renderer r, int fetchSize) throws RenderingException {
         if (results == null) {
             r.nullValue();
         } else {
             try {
+                if (fetchSize > 0) {
+                    results.setFetchSize(fetchSize);
+                }
+                
                 final ResultSetMetaData meta = results.getMetaData();
                 final int columnCount = meta.getColumnCount();
                 final String[] columns = new String[columnCount];
+                final int[] kinds = new int[columnCount];
                 int size = 0;
                 
-                for (int i = 1; i <= columnCount; i++) {
-                    final String column = meta.getColumnName(i);
-                    columns[i] = column;
+                for (int i = 0; i < columnCount; i++) {
+                    columns[i] = meta.getColumnName(i + 1);
+                    kinds[i] = kindOf(meta.getColumnType(i + 1));
                 }
                 
                 r.map();
                 r.key("rows").list();
                 while (results.next()) {
                     r.map();
-                    for (int i = 1; i <= columnCount; i++) {
-                        final String key = columns[i];
-                        final Object value = results.getObject(i);
-                        r.key(key).value(value);
+                    for (int i = 0; i < columnCount; i++) {
+                        r.key(columns[i]);
+                        renderColumn(results, i + 1, kinds[i], r);
                     }
                     r.endMap();
                     size++;
@@ -76,4 +128,74 @@ public enum ResultSetValueRenderer implements ValueRenderer<ResultSet> {
         }
     }
     
+    private static int kindOf(int type) {
+        switch (type) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return LONG;
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return DOUBLE;
+            case Types.BOOLEAN:
+                return BOOLEAN;
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+                return STRING;
+            default:
+                return OBJECT;
+        }
+    }
+    
+    private static void renderColumn(ResultSet results, int column, int kind, Renderer r) throws SQLException {
+        switch (kind) {
+            case LONG: {
+                final long value = results.getLong(column);
+                if (results.wasNull()) {
+                    r.nullValue();
+                } else {
+                    r.value(value);
+                }
+                break;
+            }
+            case DOUBLE: {
+                final double value = results.getDouble(column);
+                if (results.wasNull()) {
+                    r.nullValue();
+                } else {
+                    r.value(value);
+                }
+                break;
+            }
+            case BOOLEAN: {
+                final boolean value = results.getBoolean(column);
+                if (results.wasNull()) {
+                    r.nullValue();
+                } else {
+                    r.value(value);
+                }
+                break;
+            }
+            case STRING: {
+                r.value(results.getString(column));
+                break;
+            }
+            default: {
+                r.value(results.getObject(column));
+                break;
+            }
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return getClass().getSimpleName();
+    }
+    
 }
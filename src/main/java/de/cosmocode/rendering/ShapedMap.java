@@ -0,0 +1,271 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.Maps;
+
+/**
+ * A compact, insertion ordered {@link Map} which stores its values in an array and
+ * shares the array of its keys with all other maps of the same {@link Shape}.
+ * 
+ * <p>
+ *   Shaped maps are built using {@link #put(String, Object)} and become unmodifiable
+ *   once {@link #finish()} has been called. Lookups scan the keys linearly, which is why
+ *   maps with more than {@link #MAX_SIZE} keys fall back to a {@link LinkedHashMap}.
+ *   So do maps which would require a new shape after {@link Shape#MAX_SHAPES} shapes
+ *   have been created from the same root, which bounds the memory used by shapes
+ *   when keys differ from map to map.
+ * </p>
+ * 
+ * <p>
+ *   Shaped maps are serialized as {@link LinkedHashMap}s.
+ * </p>
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+final class ShapedMap extends AbstractMap<String, Object> implements Serializable {
+
+    private static final long serialVersionUID = -2319408614306411512L;
+
+    static final int MAX_SIZE = 32;
+    
+    private static final Object[] EMPTY = new Object[0];
+    
+    private Shape shape;
+    
+    private Object[] values;
+    
+    /**
+     * The map replacing this one after {@link #MAX_SIZE} has been exceeded.
+     */
+    private Map<String, Object> fallback;
+    
+    private boolean finished;
+    
+    public ShapedMap(Shape root, int expectedSize) {
+        this.shape = root;
+        this.values = expectedSize == 0 ? EMPTY : new Object[Math.min(expectedSize, MAX_SIZE)];
+    }
+    
+    /**
+     * Adds or replaces the value for the given key, like a {@link LinkedHashMap} would do.
+     * 
+     * @param key the key, may be null
+     * @param value the value, may be null
+     * @return the previous value associated with key
+     * @throws UnsupportedOperationException if this map is already finished
+     */
+    @Override
+    public Object put(String key, Object value) {
+        if (finished) {
+            throw new UnsupportedOperationException();
+        } else if (fallback != null) {
+            return fallback.put(key, value);
+        }
+        final int index = shape.indexOf(key);
+        if (index == -1) {
+            final int size = shape.keys.length;
+            final Shape child = size == MAX_SIZE ? null : shape.child(key);
+            if (child == null) {
+                fallback = Maps.newLinkedHashMap(this);
+                return fallback.put(key, value);
+            } else if (size == values.length) {
+                values = Arrays.copyOf(values, Math.min(Math.max(size * 2, 4), MAX_SIZE));
+            }
+            shape = child;
+            values[size] = value;
+            return null;
+        } else {
+            final Object previous = values[index];
+            values[index] = value;
+            return previous;
+        }
+    }
+    
+    /**
+     * Finishes this map and returns the map which should be exposed.
+     * 
+     * @return this or a {@link LinkedHashMap} if this map grew too large
+     */
+    public Map<String, Object> finish() {
+        finished = true;
+        if (fallback != null) {
+            return fallback;
+        }
+        final int size = shape.keys.length;
+        if (values.length != size) {
+            values = size == 0 ? EMPTY : Arrays.copyOf(values, size);
+        }
+        return this;
+    }
+    
+    /**
+     * Serializes this map as a {@link LinkedHashMap}, shapes are not meant to be serialized.
+     * 
+     * @return a copy of this map
+     */
+    private Object writeReplace() {
+        return Maps.newLinkedHashMap(this);
+    }
+    
+    @Override
+    public int size() {
+        return shape.keys.length;
+    }
+    
+    @Override
+    public boolean containsKey(Object key) {
+        return shape.indexOf(key) != -1;
+    }
+    
+    @Override
+    public Object get(Object key) {
+        final int index = shape.indexOf(key);
+        return index == -1 ? null : values[index];
+    }
+    
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<Entry<String, Object>>() {
+            
+            @Override
+            public int size() {
+                return ShapedMap.this.size();
+            }
+            
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new Iterator<Entry<String, Object>>() {
+                    
+                    private int index;
+                    
+                    @Override
+                    public boolean hasNext() {
+                        return index < shape.keys.length;
+                    }
+                    
+                    @Override
+                    public Entry<String, Object> next() {
+                        if (hasNext()) {
+                            final int current = index++;
+                            return new SimpleImmutableEntry<String, Object>(shape.keys[current], values[current]);
+                        } else {
+                            throw new NoSuchElementException();
+                        }
+                    }
+                    
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                    
+                };
+            }
+            
+        };
+    }
+    
+    /**
+     * An immutable sequence of keys, shared by all maps having exactly these keys in this order.
+     * Shapes form a tree, rooted at the empty shape, in which every child
+     * extends its parent by one key.
+     *
+     * @since 1.3
+     * @author Willi Schoenborn
+     */
+    static final class Shape {
+        
+        static final int MAX_SHAPES = 1024;
+        
+        private final Shape root;
+        
+        private final String[] keys;
+        
+        /**
+         * The number of shapes created below this shape, only maintained by the root.
+         */
+        private int count;
+        
+        private Map<String, Shape> children;
+        
+        /**
+         * The most recently requested child, homogeneous maps hit it almost every time.
+         */
+        private Shape last;
+        
+        public Shape() {
+            this.root = this;
+            this.keys = new String[0];
+        }
+        
+        private Shape(Shape root, String[] keys) {
+            this.root = root;
+            this.keys = keys;
+        }
+        
+        int indexOf(Object key) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == key || Objects.equal(keys[i], key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        
+        /**
+         * Returns the shape extending this one by the given key or null if it doesn't exist
+         * yet and no more shapes may be created from the root of this shape. Not thread-safe.
+         */
+        Shape child(String key) {
+            if (last != null && Objects.equal(last.keys[keys.length], key)) {
+                return last;
+            }
+            final Shape child = children == null ? null : children.get(key);
+            if (child != null) {
+                last = child;
+                return child;
+            } else if (root.count == MAX_SHAPES) {
+                return null;
+            } else {
+                if (children == null) {
+                    children = Maps.newHashMapWithExpectedSize(2);
+                }
+                final String[] extended = Arrays.copyOf(keys, keys.length + 1);
+                extended[keys.length] = key;
+                final Shape created = new Shape(root, extended);
+                children.put(key, created);
+                root.count++;
+                last = created;
+                return created;
+            }
+        }
+        
+    }
+    
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A bounded table of strings which returns the same {@link String} instance for
+ * equal character sequences as long as it hasn't been displaced.
+ * 
+ * <p>
+ *   The table is direct-mapped: every sequence has exactly one slot determined by its hash
+ *   and a miss replaces the current occupant. Lookups of cached sequences don't allocate,
+ *   which makes the table suitable for frequently repeated keys and low-cardinality values.
+ *   This class is not thread-safe.
+ * </p>
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+final class StringTable {
+
+    private final String[] table;
+    
+    private final int mask;
+    
+    /**
+     * Creates a new {@link StringTable}.
+     * 
+     * @param capacity the number of slots, must be a power of two
+     * @throws IllegalArgumentException if capacity is not a positive power of two
+     */
+    public StringTable(int capacity) {
+        Preconditions.checkArgument(capacity > 0 && Integer.bitCount(capacity) == 1, 
+            "Capacity must be a positive power of two, but was %s", capacity);
+        this.table = new String[capacity];
+        this.mask = capacity - 1;
+    }
+    
+    /**
+     * Returns a string equal to the given sequence, reusing a previously
+     * returned instance if possible.
+     * 
+     * @param sequence the character sequence
+     * @return a string with the same characters as sequence
+     * @throws NullPointerException if sequence is null
+     */
+    public String intern(CharSequence sequence) {
+        final int hash = hash(sequence);
+        final int index = (hash ^ (hash >>> 16)) & mask;
+        final String cached = table[index];
+        if (cached != null && (cached == sequence || cached.contentEquals(sequence))) {
+            return cached;
+        } else {
+            final String string = sequence.toString();
+            table[index] = string;
+            return string;
+        }
+    }
+    
+    /**
+     * Computes the same hash as {@link String#hashCode()} without creating a string.
+     */
+    private static int hash(CharSequence sequence) {
+        if (sequence instanceof String || sequence instanceof EncodedString) {
+            return sequence.hashCode();
+        } else {
+            int hash = 0;
+            final int length = sequence.length();
+            for (int i = 0; i < length; i++) {
+                hash = 31 * hash + sequence.charAt(i);
+            }
+            return hash;
+        }
+    }
+    
+}
@@ -16,19 +16,27 @@
 
 package de.cosmocode.rendering;
 
+import java.util.Collection;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ForwardingMap;
+import com.google.common.collect.MapMaker;
 
 import de.cosmocode.commons.reflect.Reflection;
 
 /**
- * {@link Mapping} implementation which traverses the object hierarchy when
- * {@link Mapping#find(Class)} is called to find the most appropriate type mapping.
+ * {@link KeyMapping} implementation which traverses the object hierarchy when
+ * {@link KeyMapping#find(Class)} is called to find the most appropriate type mapping.
+ * 
+ * <p>
+ *   Resolved types are cached, see {@link SuperClassMapping} for details.
+ * </p>
  *
  * @since 1.1
  * @author Willi Schoenborn
@@ -39,6 +47,18 @@ final class SuperClassKeyMapping extends ForwardingMap<Class<?>, KeyRenderer<?>>
 
     private final Map<Class<?>, KeyRenderer<?>> renderers;
     
+    // weak keys, the cache must not prevent classes from being unloaded
+    private final ConcurrentMap<Class<?>, KeyRenderer<?>> cache = new MapMaker().weakKeys().makeMap();
+    
+    private final Runnable invalidate = new Runnable() {
+        
+        @Override
+        public void run() {
+            cache.clear();
+        }
+        
+    };
+    
     SuperClassKeyMapping(Map<Class<?>, KeyRenderer<?>> renderers) {
         this.renderers = Preconditions.checkNotNull(renderers, "Renderers");
     }
@@ -48,6 +68,47 @@ final class SuperClassKeyMapping extends ForwardingMap<Class<?>, KeyRenderer<?>>
         return renderers;
     }
     
+    @Override
+    public KeyRenderer<?> put(Class<?> key, KeyRenderer<?> value) {
+        final KeyRenderer<?> old = super.put(key, value);
+        cache.clear();
+        return old;
+    }
+    
+    @Override
+    public void putAll(Map<? extends Class<?>, ? extends KeyRenderer<?>> map) {
+        super.putAll(map);
+        cache.clear();
+    }
+    
+    @Override
+    public KeyRenderer<?> remove(Object key) {
+        final KeyRenderer<?> old = super.remove(key);
+        cache.clear();
+        return old;
+    }
+    
+    @Override
+    public void clear() {
+        super.clear();
+        cache.clear();
+    }
+    
+    @Override
+    public Set<Class<?>> keySet() {
+        return InvalidatingViews.of(super.keySet(), invalidate);
+    }
+    
+    @Override
+    public Collection<KeyRenderer<?>> values() {
+        return InvalidatingViews.of(super.values(), invalidate);
+    }
+    
+    @Override
+    public Set<Entry<Class<?>, KeyRenderer<?>>> entrySet() {
+        return InvalidatingViews.ofEntries(super.entrySet(), invalidate);
+    }
+    
     @SuppressWarnings("unchecked")
     private <T> KeyRenderer<T> cast(KeyRenderer<?> renderer) {
         return (KeyRenderer<T>) renderer;
@@ -56,7 +117,19 @@ final class SuperClassKeyMapping extends ForwardingMap<Class<?>, KeyRenderer<?>>
     @Override
     public <T> KeyRenderer<T> find(Class<? extends T> type) {
         Preconditions.checkNotNull(type, "Type");
-        
+        final KeyRenderer<?> cached = cache.get(type);
+        if (cached == null) {
+            final KeyRenderer<T> found = resolve(type);
+            if (found != null) {
+                cache.put(type, found);
+            }
+            return found;
+        } else {
+            return cast(cached);
+        }
+    }
+    
+    private <T> KeyRenderer<T> resolve(Class<? extends T> type) {
         final KeyRenderer<?> perfectMatch = renderers.get(type);
         
         if (perfectMatch == null) {
@@ -68,7 +141,6 @@ final class SuperClassKeyMapping extends ForwardingMap<Class<?>, KeyRenderer<?>>
         } else {
             return cast(perfectMatch);
         }
-        
     }
     
     private <T> KeyRenderer<T> findForSuperclass(Class<? extends T> type) {
@@ -16,19 +16,31 @@
 
 package de.cosmocode.rendering;
 
+import java.util.Collection;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ForwardingMap;
+import com.google.common.collect.MapMaker;
 
 import de.cosmocode.commons.reflect.Reflection;
 
 /**
  * {@link Mapping} implementation which traverses the object hierarchy when
  * {@link Mapping#find(Class)} is called to find the most appropriate type mapping.
+ * 
+ * <p>
+ *   Resolved types are cached, so the hierarchy is traversed only once per type.
+ *   The cache is invalidated on every modification through this mapping, including
+ *   its {@link #keySet()}, {@link #values()} and {@link #entrySet()} views.
+ *   Modifications which bypass this mapping by changing the backing map directly
+ *   are not guaranteed to be reflected by {@link #find(Class)}.
+ * </p>
  *
  * @since 1.1
  * @author Willi Schoenborn
@@ -39,6 +51,18 @@ public final class SuperClassMapping extends ForwardingMap<Class<?>, ValueRender
 
     private final Map<Class<?>, ValueRenderer<?>> renderers;
     
+    // weak keys, the cache must not prevent classes from being unloaded
+    private final ConcurrentMap<Class<?>, ValueRenderer<?>> cache = new MapMaker().weakKeys().makeMap();
+    
+    private final Runnable invalidate = new Runnable() {
+        
+        @Override
+        public void run() {
+            cache.clear();
+        }
+        
+    };
+    
     public SuperClassMapping(Map<Class<?>, ValueRenderer<?>> renderers) {
         this.renderers = Preconditions.checkNotNull(renderers, "Renderers");
     }
@@ -48,6 +72,47 @@ public final class SuperClassMapping extends ForwardingMap<Class<?>, ValueRender
         return renderers;
     }
     
+    @Override
+    public ValueRenderer<?> put(Class<?> key, ValueRenderer<?> value) {
+        final ValueRenderer<?> old = super.put(key, value);
+        cache.clear();
+        return old;
+    }
+    
+    @Override
+    public void putAll(Map<? extends Class<?>, ? extends ValueRenderer<?>> map) {
+        super.putAll(map);
+        cache.clear();
+    }
+    
+    @Override
+    public ValueRenderer<?> remove(Object key) {
+        final ValueRenderer<?> old = super.remove(key);
+        cache.clear();
+        return old;
+    }
+    
+    @Override
+    public void clear() {
+        super.clear();
+        cache.clear();
+    }
+    
+    @Override
+    public Set<Class<?>> keySet() {
+        return InvalidatingViews.of(super.keySet(), invalidate);
+    }
+    
+    @Override
+    public Collection<ValueRenderer<?>> values() {
+        return InvalidatingViews.of(super.values(), invalidate);
+    }
+    
+    @Override
+    public Set<Entry<Class<?>, ValueRenderer<?>>> entrySet() {
+        return InvalidatingViews.ofEntries(super.entrySet(), invalidate);
+    }
+    
     @SuppressWarnings("unchecked")
     private <T> ValueRenderer<T> cast(ValueRenderer<?> renderer) {
         return (ValueRenderer<T>) renderer;
@@ -56,24 +121,32 @@ public final class SuperClassMapping extends ForwardingMap<Class<?>, ValueRender
     @Override
     public <T> ValueRenderer<T> find(Class<? extends T> type) {
         Preconditions.checkNotNull(type, "Type");
+        final ValueRenderer<?> cached = cache.get(type);
+        if (cached == null) {
+            final ValueRenderer<T> found = resolve(type);
+            if (found != null) {
+                cache.put(type, found);
+            }
+            return found;
+        } else {
+            return cast(cached);
+        }
+    }
+    
+    private <T> ValueRenderer<T> resolve(Class<? extends T> type) {
+        final ValueRenderer<?> perfectMatch = renderers.get(type);
         
-        if (Renderable.class.isAssignableFrom(type)) {
+        if (perfectMatch != null) {
+            // an explicit mapping, e.g. a rendering plan, wins over the Renderable shortcut
+            return cast(perfectMatch);
+        } else if (Renderable.class.isAssignableFrom(type)) {
             // implementing Renderable is the prefered shortcut
             return cast(renderers.get(Renderable.class));
+        } else if (type.isArray()) {
+            return cast(renderers.get(Object[].class));
         } else {
-            final ValueRenderer<?> perfectMatch = renderers.get(type);
-            
-            if (perfectMatch == null) {
-                if (type.isArray()) {
-                    return cast(renderers.get(Object[].class));
-                } else {
-                    return findForSuperclass(type);
-                }
-            } else {
-                return cast(perfectMatch);
-            }
+            return findForSuperclass(type);
         }
-        
     }
     
     private <T> ValueRenderer<T> findForSuperclass(Class<? extends T> type) {
@@ -0,0 +1,236 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.io.CharStreams;
+
+/**
+ * A {@link Renderer} which forwards every operation to a number of delegates,
+ * producing multiple outputs from a single traversal.
+ * 
+ * <p>
+ *   Composite operations, like {@link #value(Object)} or {@link Renderable#render(Renderer, RenderingLevel)},
+ *   are resolved once by this renderer and only primitive operations are passed to the delegates.
+ *   Use {@link #setMapping(Mapping)} and {@link #setKeyMapping(KeyMapping)} on this
+ *   renderer rather than on the delegates. As a consequence, renderer specific handling
+ *   of composite values, like raw byte strings in {@link CborRenderer}, doesn't apply.
+ * </p>
+ * 
+ * <p>
+ *   {@link Reader}s can only be consumed once and will be read into memory
+ *   if there is more than one delegate.
+ * </p>
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+public final class TeeRenderer extends AbstractRenderer {
+
+    private final Renderer[] delegates;
+    
+    /**
+     * Creates a {@link TeeRenderer} forwarding to the given delegates.
+     * 
+     * @param delegates the delegates, in order
+     * @throws NullPointerException if delegates is or contains null
+     * @throws IllegalArgumentException if delegates is empty
+     */
+    public TeeRenderer(Renderer... delegates) {
+        this(Arrays.asList(Preconditions.checkNotNull(delegates, "Delegates")));
+    }
+    
+    /**
+     * Creates a {@link TeeRenderer} forwarding to the given delegates.
+     * 
+     * @param delegates the delegates, in order
+     * @throws NullPointerException if delegates is or contains null
+     * @throws IllegalArgumentException if delegates is empty
+     */
+    public TeeRenderer(Iterable<? extends Renderer> delegates) {
+        Preconditions.checkNotNull(delegates, "Delegates");
+        this.delegates = Iterables.toArray(delegates, Renderer.class);
+        Preconditions.checkArgument(this.delegates.length > 0, "Delegates must not be empty");
+        for (Renderer delegate : this.delegates) {
+            Preconditions.checkNotNull(delegate, "Delegate");
+        }
+    }
+    
+    @Override
+    public Renderer list() throws RenderingException {
+        for (Renderer delegate : delegates) {
+            delegate.list();
+        }
+        return this;
+    }
+    
+    @Override
+    public Renderer list(int expectedSize) throws RenderingException {
+        for (Renderer delegate : delegates) {
+            delegate.list(expectedSize);
+        }
+        return this;
+    }
+    
+    @Override
+    public Renderer endList() throws RenderingException {
+        for (Renderer delegate : delegates) {
+            delegate.endList();
+        }
+        return this;
+    }
+    
+    @Override
+    public Renderer map() throws RenderingException {
+        for (Renderer delegate : delegates) {
+            delegate.map();
+        }
+        return this;
+    }
+    
+    @Override
+    public Renderer map(int expectedSize) throws RenderingException {
+        for (Renderer delegate : delegates) {
+            delegate.map(expectedSize);
+        }
+        return this;
+    }
+    
+    @Override
+    public Renderer endMap() throws RenderingException {
+        for (Renderer delegate : delegates) {
+            delegate.endMap();
+        }
+        return this;
+    }
+    
+    @Override
+    public Renderer key(@Nullable CharSequence key) throws RenderingException {
+        for (Renderer delegate : delegates) {
+            delegate.key(key);
+        }
+        return this;
+    }
+    
+    @Override
+    public Renderer nullValue() throws RenderingException {
+        for (Renderer delegate : delegates) {
+            delegate.nullValue();
+        }
+        return this;
+    }
+    
+    @Override
+    public Renderer value(boolean value) throws RenderingException {
+        for (Renderer delegate : delegates) {
+            delegate.value(value);
+        }
+        return this;
+    }
+    
+    @Override
+    public Renderer value(long value) throws RenderingException {
+        for (Renderer delegate : delegates) {
+            delegate.value(value);
+        }
+        return this;
+    }
+    
+    @Override
+    public Renderer value(double value) throws RenderingException {
+        for (Renderer delegate : delegates) {
+            delegate.value(value);
+        }
+        return this;
+    }
+    
+    @Override
+    public Renderer value(@Nullable CharSequence value) throws RenderingException {
+        for (Renderer delegate : delegates) {
+            delegate.value(value);
+        }
+        return this;
+    }
+    
+    @Override
+    public Renderer value(@Nullable Reader value) throws RenderingException {
+        if (value == null) {
+            return nullValue();
+        } else if (delegates.length == 1) {
+            delegates[0].value(value);
+            return this;
+        } else {
+            final String string;
+            try {
+                string = CharStreams.toString(value);
+            } catch (IOException e) {
+                throw new RenderingException(e);
+            }
+            for (Renderer delegate : delegates) {
+                delegate.value(new StringReader(string));
+            }
+            return this;
+        }
+    }
+    
+    @Override
+    public Renderer value(@Nullable long[] values) throws RenderingException {
+        for (Renderer delegate : delegates) {
+            delegate.value(values);
+        }
+        return this;
+    }
+    
+    @Override
+    public Renderer value(@Nullable double[] values) throws RenderingException {
+        for (Renderer delegate : delegates) {
+            delegate.value(values);
+        }
+        return this;
+    }
+    
+    /**
+     * Builds all delegates.
+     * 
+     * @return a list containing the results of all delegates, in order
+     * @throws RenderingException if any of the delegates can't be built
+     */
+    @Override
+    public List<Object> build() throws RenderingException {
+        final List<Object> results = Lists.newArrayListWithCapacity(delegates.length);
+        for (Renderer delegate : delegates) {
+            results.add(delegate.build());
+        }
+        return results;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%s%s", getClass().getSimpleName(), Arrays.toString(delegates));
+    }
+    
+}
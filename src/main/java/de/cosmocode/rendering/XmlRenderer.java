@@ -0,0 +1,459 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+
+/**
+ * A streaming implementation of the {@link Renderer} interface which writes
+ * xml directly to an {@link Appendable} instead of building an in-memory structure.
+ * Memory consumption only depends on the nesting depth, not on the size of the document.
+ *
+ * <p>
+ *   The outermost structure is written as the root element, named "root" by default.
+ *   Elements of lists are written as elements named "item" by default, pairs of maps as
+ *   elements named after their key. Keys which are not valid xml names are sanitized by
+ *   replacing all illegal characters with an underscore, see {@link #setKeyElements(Function)}
+ *   to customize this. Values are written as escaped character data, null values as empty elements.
+ *   Characters which are not allowed in xml 1.0, including unpaired surrogates, are replaced
+ *   with {@code U+FFFD}. No xml declaration is being written.
+ * </p>
+ *
+ * <p>
+ *   The underlying appendable will be flushed, if it is {@link Flushable},
+ *   as soon as the outermost structure has been closed. It will never be closed
+ *   by this renderer.
+ * </p>
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+public final class XmlRenderer extends AbstractRenderer {
+
+    private static final int BUFFER_SIZE = 4096;
+
+    private static final char REPLACEMENT = '\ufffd';
+
+    private final Appendable out;
+
+    private final Deque<Mode> stack = new ArrayDeque<Mode>();
+
+    /**
+     * Names of all currently open elements.
+     */
+    private final Deque<String> elements = new ArrayDeque<String>();
+
+    private Mode mode = Mode.INITIAL;
+
+    /**
+     * The name of the element waiting for its value when in {@link Mode#KEY}.
+     */
+    private String element;
+
+    private String rootElement = "root";
+
+    private String itemElement = "item";
+
+    private Function<? super String, String> keyElements = SanitizingFunction.INSTANCE;
+
+    public XmlRenderer(Appendable out) {
+        this.out = Preconditions.checkNotNull(out, "Out");
+    }
+
+    /**
+     * Creates a {@link XmlRenderer} which writes UTF-8 encoded xml to the given stream.
+     *
+     * @param out the stream being written to
+     * @throws NullPointerException if out is null
+     */
+    public XmlRenderer(OutputStream out) {
+        this(new OutputStreamWriter(Preconditions.checkNotNull(out, "Out"), Charsets.UTF_8));
+    }
+
+    /**
+     * Sets the name of the root element. Defaults to "root".
+     *
+     * @param name the element name
+     * @throws NullPointerException if name is null
+     * @throws IllegalArgumentException if name is not a valid xml name
+     * @throws IllegalStateException if rendering has already started
+     */
+    public void setRootElement(String name) {
+        checkConfigurable();
+        this.rootElement = checkName(name);
+    }
+
+    /**
+     * Sets the name of the elements of lists. Defaults to "item".
+     *
+     * @param name the element name
+     * @throws NullPointerException if name is null
+     * @throws IllegalArgumentException if name is not a valid xml name
+     * @throws IllegalStateException if rendering has already started
+     */
+    public void setItemElement(String name) {
+        checkConfigurable();
+        this.itemElement = checkName(name);
+    }
+
+    /**
+     * Sets the function which computes element names for keys. The function
+     * will be called with "null" for null keys and has to return valid xml names.
+     * The default function replaces all illegal characters with an underscore.
+     *
+     * @param function the function computing element names
+     * @throws NullPointerException if function is null
+     * @throws IllegalStateException if rendering has already started
+     */
+    public void setKeyElements(Function<? super String, String> function) {
+        checkConfigurable();
+        this.keyElements = Preconditions.checkNotNull(function, "Function");
+    }
+
+    private void checkConfigurable() {
+        Preconditions.checkState(mode == Mode.INITIAL, "Rendering has already started");
+    }
+
+    private static String checkName(String name) {
+        Preconditions.checkNotNull(name, "Name");
+        Preconditions.checkArgument(isName(name), "%s is not a valid xml name", name);
+        return name;
+    }
+
+    private static boolean isName(CharSequence name) {
+        if (name.length() == 0 || !isNameStart(name.charAt(0))) {
+            return false;
+        }
+        for (int i = 1; i < name.length(); i++) {
+            if (!isNamePart(name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isNameStart(char c) {
+        return c == '_' || Character.isLetter(c);
+    }
+
+    private static boolean isNamePart(char c) {
+        return c == '-' || c == '.' || isNameStart(c) || Character.isDigit(c);
+    }
+
+    private void write(char c) {
+        try {
+            out.append(c);
+        } catch (IOException e) {
+            throw new RenderingException(e);
+        }
+    }
+
+    private void write(CharSequence sequence) {
+        try {
+            out.append(sequence);
+        } catch (IOException e) {
+            throw new RenderingException(e);
+        }
+    }
+
+    private void writeEscaped(CharSequence value) throws IOException {
+        final int length = value.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                // valid surrogate pair
+                i++;
+            } else if (c == '&' || c == '<' || c == '>' || c == '\r' || (c < 0x20 && c != '\t' && c != '\n') 
+                || c == '\ufffe' || c == '\uffff' || (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE)) {
+                out.append(value, start, i);
+                escape(c);
+                start = i + 1;
+            }
+        }
+        out.append(value, start, length);
+    }
+
+    private void escape(char c) throws IOException {
+        switch (c) {
+            case '&':
+                out.append("&amp;");
+                break;
+            case '<':
+                out.append("&lt;");
+                break;
+            case '>':
+                out.append("&gt;");
+                break;
+            case '\r':
+                out.append("&#13;");
+                break;
+            default:
+                out.append(REPLACEMENT);
+                break;
+        }
+    }
+
+    /**
+     * Returns the name of the element for the next value and leaves {@link Mode#KEY}.
+     */
+    private String nextElement() {
+        if (mode == Mode.LIST) {
+            return itemElement;
+        } else if (mode == Mode.KEY) {
+            mode = Mode.MAP;
+            final String name = element;
+            element = null;
+            return name;
+        } else {
+            throw new RenderingException(String.format("Appending only works in %s and %s", Mode.LIST, Mode.KEY));
+        }
+    }
+
+    private void open(Mode next) {
+        mode.checkAllowed(next);
+        final String name = mode == Mode.INITIAL ? rootElement : nextElement();
+        write('<');
+        write(name);
+        write('>');
+        elements.push(name);
+        stack.push(next);
+        mode = next;
+    }
+
+    private Renderer close() {
+        stack.pop();
+        write("</");
+        write(elements.pop());
+        write('>');
+        if (stack.isEmpty()) {
+            mode = Mode.DONE;
+            flush();
+        } else {
+            mode = stack.peek();
+        }
+        return this;
+    }
+
+    private void flush() {
+        if (out instanceof Flushable) {
+            try {
+                Flushable.class.cast(out).flush();
+            } catch (IOException e) {
+                throw new RenderingException(e);
+            }
+        }
+    }
+
+    private Renderer append(CharSequence value, boolean escape) {
+        final String name = nextElement();
+        try {
+            out.append('<').append(name).append('>');
+            if (escape) {
+                writeEscaped(value);
+            } else {
+                out.append(value);
+            }
+            out.append("</").append(name).append('>');
+        } catch (IOException e) {
+            throw new RenderingException(e);
+        }
+        return this;
+    }
+
+    @Override
+    public Renderer list() throws RenderingException {
+        open(Mode.LIST);
+        return this;
+    }
+
+    @Override
+    public Renderer endList() throws RenderingException {
+        if (mode == Mode.LIST) {
+            return close();
+        } else {
+            throw new RenderingException(String.format("endList is not allowed when in %s mode", mode));
+        }
+    }
+
+    @Override
+    public Renderer map() throws RenderingException {
+        open(Mode.MAP);
+        return this;
+    }
+
+    @Override
+    public Renderer endMap() throws RenderingException {
+        if (mode == Mode.MAP) {
+            return close();
+        } else {
+            throw new RenderingException(String.format("endMap is not allowed when in %s mode", mode));
+        }
+    }
+
+    @Override
+    public Renderer key(@Nullable CharSequence key) throws RenderingException {
+        mode.checkAllowed(Mode.KEY);
+        final String name = keyElements.apply(key == null ? "null" : key.toString());
+        if (name == null || !isName(name)) {
+            throw new RenderingException(String.format("%s is not a valid xml name for key %s", name, key));
+        }
+        element = name;
+        mode = Mode.KEY;
+        return this;
+    }
+
+    @Override
+    public Renderer nullValue() throws RenderingException {
+        final String name = nextElement();
+        write('<');
+        write(name);
+        write("/>");
+        return this;
+    }
+
+    @Override
+    public Renderer value(boolean value) throws RenderingException {
+        return append(value ? "true" : "false", false);
+    }
+
+    @Override
+    public Renderer value(@Nullable CharSequence value) throws RenderingException {
+        return value == null ? nullValue() : append(value, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     *   This implementation escapes and writes the value in chunks
+     *   without reading it into memory at once.
+     * </p>
+     */
+    @Override
+    public Renderer value(@Nullable Reader value) throws RenderingException {
+        if (value == null) {
+            return nullValue();
+        } else {
+            final String name = nextElement();
+            final char[] buffer = new char[BUFFER_SIZE];
+            int offset = 0;
+            try {
+                out.append('<').append(name).append('>');
+                int read;
+                while ((read = value.read(buffer, offset, buffer.length - offset)) != -1) {
+                    final int end = offset + read;
+                    // a high surrogate at the end may be completed by the next chunk
+                    final boolean split = end > 0 && Character.isHighSurrogate(buffer[end - 1]);
+                    writeEscaped(CharBuffer.wrap(buffer, 0, split ? end - 1 : end));
+                    if (split) {
+                        buffer[0] = buffer[end - 1];
+                        offset = 1;
+                    } else {
+                        offset = 0;
+                    }
+                }
+                // a pending high surrogate at the end of the stream is unpaired
+                writeEscaped(CharBuffer.wrap(buffer, 0, offset));
+                out.append("</").append(name).append('>');
+            } catch (IOException e) {
+                throw new RenderingException(e);
+            }
+            return this;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <strong>Note</strong>: Non finite values are rendered using the lexical representation
+     * of {@code xs:double}, i.e. {@code NaN}, {@code INF} and {@code -INF}.
+     */
+    @Override
+    public Renderer value(double value) throws RenderingException {
+        if (Double.isNaN(value)) {
+            return append("NaN", false);
+        } else if (Double.isInfinite(value)) {
+            return append(value > 0 ? "INF" : "-INF", false);
+        } else {
+            return append(Double.toString(value), false);
+        }
+    }
+
+    @Override
+    public Renderer value(long value) throws RenderingException {
+        return append(Long.toString(value), false);
+    }
+
+    /**
+     * Returns the underlying appendable after the outermost structure has been
+     * closed.
+     *
+     * @return the appendable this renderer wrote to
+     * @throws RenderingException if the structure is not finished yet
+     */
+    @Override
+    public Appendable build() throws RenderingException {
+        if (mode == Mode.DONE) {
+            assert stack.isEmpty();
+            return out;
+        } else {
+            throw new RenderingException(String.format("Structure not finished, current mode is %s", mode));
+        }
+    }
+
+    /**
+     * Replaces all characters which are not allowed in xml names with an underscore
+     * and prepends an underscore if the name doesn't start with a valid character.
+     *
+     * @since 1.3
+     * @author Willi Schoenborn
+     */
+    private static enum SanitizingFunction implements Function<String, String> {
+
+        INSTANCE;
+
+        @Override
+        public String apply(String from) {
+            if (isName(from)) {
+                return from;
+            }
+            final StringBuilder builder = new StringBuilder(from.length() + 1);
+            if (from.length() == 0 || !isNameStart(from.charAt(0))) {
+                builder.append('_');
+            }
+            for (int i = 0; i < from.length(); i++) {
+                final char c = from.charAt(i);
+                builder.append(isNamePart(c) ? c : '_');
+            }
+            return builder.toString();
+        }
+
+    }
+
+}
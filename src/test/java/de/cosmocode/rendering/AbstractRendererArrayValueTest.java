@@ -72,4 +72,33 @@ public abstract class AbstractRendererArrayValueTest implements UnitProvider<Ren
         unit().value(new double[] {Double.MIN_VALUE, -1, 0, 1, Double.MAX_VALUE});
     }
     
+    /**
+     * Tests {@link Renderer#value(long[])} and {@link Renderer#value(double[])}.
+     */
+    @Test
+    public void bulkArray() {
+        unit().value(new long[] {Long.MIN_VALUE, -1, 0, 1, Long.MAX_VALUE});
+        unit().value(new double[] {Double.MIN_VALUE, -1, 0, 1, Double.MAX_VALUE});
+        unit().list().value(new long[0]).value(new double[0]).endList();
+        unit().map().key("k").value(new long[] {1}).key("l").value(new double[] {1}).endMap();
+    }
+    
+    /**
+     * Tests {@link Renderer#value(long[])} with null.
+     */
+    @Test
+    public void bulkArrayNull() {
+        final long[] longs = null;
+        final double[] doubles = null;
+        unit().list().value(longs).value(doubles).endList();
+    }
+    
+    /**
+     * Tests {@link Renderer#value(long[])} after map.
+     */
+    @Test(expected = RenderingException.class)
+    public void bulkArrayMap() {
+        unit().map().value(new long[0]);
+    }
+    
 }
@@ -69,6 +69,31 @@ public abstract class AbstractRendererListTest implements UnitProvider<Renderer>
         unit().map().list();
     }
     
+    /**
+     * Tests {@link Renderer#list(int)} to return this.
+     */
+    @Test
+    public void listSizedThis() {
+        final Renderer unit = unit();
+        Assert.assertSame(unit, unit.list(3));
+    }
+    
+    /**
+     * Tests {@link Renderer#list(int)} with a size which doesn't match the actual size.
+     */
+    @Test
+    public void listSizedMismatch() {
+        unit().list(1).endList();
+    }
+    
+    /**
+     * Tests {@link Renderer#list(int)} with a negative size.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void listSizedNegative() {
+        unit().list(-1);
+    }
+    
     /**
      * Tests {@link Renderer#list()} after done.
      */
@@ -69,6 +69,31 @@ public abstract class AbstractRendererMapTest implements UnitProvider<Renderer>
         unit().map().map();
     }
     
+    /**
+     * Tests {@link Renderer#map(int)} to return this.
+     */
+    @Test
+    public void mapSizedThis() {
+        final Renderer unit = unit();
+        Assert.assertSame(unit, unit.map(3));
+    }
+    
+    /**
+     * Tests {@link Renderer#map(int)} with a size which doesn't match the actual size.
+     */
+    @Test
+    public void mapSizedMismatch() {
+        unit().map(1).endMap();
+    }
+    
+    /**
+     * Tests {@link Renderer#map(int)} with a negative size.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void mapSizedNegative() {
+        unit().map(-1);
+    }
+    
     /**
      * Tests {@link Renderer#map()} after done.
      */
@@ -16,11 +16,14 @@
 
 package de.cosmocode.rendering;
 
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.List;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Ordering;
 
@@ -51,6 +54,70 @@ public abstract class AbstractRendererObjectValueTest implements UnitProvider<Re
         Assert.assertSame(unit, unit.list().value(this));
     }
     
+    /**
+     * Tests {@link Renderer#value(Object)} with types which are rendered without a lookup
+     * when the default mapping is active.
+     */
+    @Test
+    public void valueObjectCommonTypes() {
+        final Object[] values = {"a", 1, 2L, true};
+        final Renderer unit = unit().list();
+        for (Object value : values) {
+            Assert.assertSame(unit, unit.value(value));
+        }
+        unit.endList();
+    }
+    
+    /**
+     * Tests that {@link Renderer#value(Object)} uses custom renderers registered for
+     * types which are rendered without a lookup when the default mapping is active.
+     */
+    @Test
+    public void valueObjectCommonTypesOverridden() {
+        final List<Object> rendered = Lists.newArrayList();
+        final ValueRenderer<Object> custom = new ValueRenderer<Object>() {
+            
+            @Override
+            public void render(Object value, Renderer r) throws RenderingException {
+                rendered.add(value);
+                r.nullValue();
+            }
+            
+        };
+        final Mapping mapping = Mappings.newMapping();
+        mapping.put(String.class, custom);
+        mapping.put(Integer.class, custom);
+        mapping.put(Long.class, custom);
+        mapping.put(Boolean.class, custom);
+        final Renderer unit = unit();
+        unit.setMapping(mapping);
+        unit.list().value((Object) "a").value((Object) 1).value((Object) 2L).value((Object) true).endList();
+        Assert.assertEquals(Arrays.<Object>asList("a", 1, 2L, true), rendered);
+    }
+    
+    /**
+     * Tests that {@link Renderer#value(Object)} uses a custom renderer registered for only
+     * one of the types which are rendered without a lookup by default.
+     */
+    @Test
+    public void valueObjectCommonTypesPartiallyOverridden() {
+        final List<Object> rendered = Lists.newArrayList();
+        final Mapping mapping = Mappings.newConcurrentMapping();
+        mapping.put(Long.class, new ValueRenderer<Object>() {
+            
+            @Override
+            public void render(Object value, Renderer r) throws RenderingException {
+                rendered.add(value);
+                r.nullValue();
+            }
+            
+        });
+        final Renderer unit = unit();
+        unit.setMapping(mapping);
+        unit.list().value((Object) "a").value((Object) 1).value((Object) 2L).value((Object) true).endList();
+        Assert.assertEquals(Arrays.<Object>asList(2L), rendered);
+    }
+    
     /**
      * Tests {@link Renderer#value(Object)} with a simple (non complex) value as first call.
      */
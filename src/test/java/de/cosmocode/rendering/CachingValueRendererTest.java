@@ -0,0 +1,139 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tests {@link CachingValueRenderer}.
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+public final class CachingValueRendererTest {
+
+    /**
+     * A renderable which counts how often it has been rendered.
+     */
+    private static final class Item implements Renderable {
+        
+        private final int id;
+        
+        private int rendered;
+        
+        public Item(int id) {
+            this.id = id;
+        }
+        
+        @Override
+        public void render(Renderer r, RenderingLevel level) throws RenderingException {
+            rendered++;
+            r.key("id").value(id).key("tags").value(Arrays.asList("a", "b"));
+        }
+        
+    }
+    
+    private static final Function<Item, Integer> ID = new Function<Item, Integer>() {
+        
+        @Override
+        public Integer apply(Item from) {
+            return from.id;
+        }
+        
+    };
+    
+    private CachingValueRenderer<Item> unit(int maximumSize) {
+        return new CachingValueRenderer<Item>(RenderableValueRenderer.INSTANCE, ID, maximumSize);
+    }
+    
+    private Map<String, Object> expected(int id) {
+        return ImmutableMap.<String, Object>of("id", (long) id, "tags", Arrays.asList("a", "b"));
+    }
+    
+    /**
+     * Tests that cached values are replayed without rendering them again.
+     */
+    @Test
+    public void cached() {
+        final CachingValueRenderer<Item> unit = unit(10);
+        final Item item = new Item(1);
+        final Object first = new CollectionRenderer().value(item, unit).build();
+        final Object second = new CollectionRenderer().value(item, unit).build();
+        Assert.assertEquals(expected(1), first);
+        Assert.assertEquals(expected(1), second);
+        Assert.assertEquals(1, item.rendered);
+    }
+    
+    /**
+     * Tests that cached values can be replayed into streaming renderers.
+     */
+    @Test
+    public void json() {
+        final CachingValueRenderer<Item> unit = unit(10);
+        final Item item = new Item(2);
+        new CollectionRenderer().value(item, unit);
+        final String json = new JsonRenderer(new StringBuilder()).value(item, unit).build().toString();
+        Assert.assertEquals("{\"id\":2,\"tags\":[\"a\",\"b\"]}", json);
+        Assert.assertEquals(1, item.rendered);
+    }
+    
+    /**
+     * Tests that the least recently used values are evicted.
+     */
+    @Test
+    public void eviction() {
+        final CachingValueRenderer<Item> unit = unit(2);
+        final Item first = new Item(1);
+        final Item second = new Item(2);
+        final Item third = new Item(3);
+        final CollectionRenderer renderer = new CollectionRenderer();
+        renderer.list().value(first, unit).value(second, unit).value(first, unit).value(third, unit);
+        renderer.value(second, unit).value(first, unit).endList();
+        Assert.assertEquals(Arrays.asList(
+            expected(1), expected(2), expected(1), expected(3), expected(2), expected(1)
+        ), renderer.build());
+        Assert.assertEquals(2, unit.size());
+        // 2 is evicted by 3, 1 by 2 afterwards
+        Assert.assertEquals(2, first.rendered);
+        Assert.assertEquals(2, second.rendered);
+        Assert.assertEquals(1, third.rendered);
+    }
+    
+    /**
+     * Tests invalidation.
+     */
+    @Test
+    public void invalidate() {
+        final CachingValueRenderer<Item> unit = unit(10);
+        final Item item = new Item(1);
+        new CollectionRenderer().value(item, unit);
+        unit.invalidate(1);
+        new CollectionRenderer().value(item, unit);
+        unit.invalidateAll();
+        Assert.assertEquals(0, unit.size());
+        new CollectionRenderer().value(item, unit);
+        Assert.assertEquals(3, item.rendered);
+    }
+    
+}
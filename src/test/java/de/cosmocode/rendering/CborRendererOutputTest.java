@@ -0,0 +1,178 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.base.Strings;
+
+/**
+ * Tests the bytes written by {@link CborRenderer} using the examples
+ * of <a href="http://tools.ietf.org/html/rfc7049#appendix-A">RFC 7049</a>.
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+public final class CborRendererOutputTest {
+
+    private static String hex(ByteArrayOutputStream stream) {
+        final StringBuilder builder = new StringBuilder();
+        for (byte b : stream.toByteArray()) {
+            builder.append(String.format("%02x", b & 0xFF));
+        }
+        return builder.toString();
+    }
+    
+    private String render(Object... values) {
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        new CborRenderer(stream).list().values(values).endList().build();
+        return unwrap(stream);
+    }
+    
+    private String render(Reader value) {
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        new CborRenderer(stream).list().value(value).endList().build();
+        return unwrap(stream);
+    }
+    
+    private String unwrap(ByteArrayOutputStream stream) {
+        final String hex = hex(stream);
+        Assert.assertTrue(hex.startsWith("9f"));
+        Assert.assertTrue(hex.endsWith("ff"));
+        return hex.substring(2, hex.length() - 2);
+    }
+    
+    /**
+     * Tests integers.
+     */
+    @Test
+    public void integers() {
+        Assert.assertEquals("00", render(0));
+        Assert.assertEquals("17", render(23));
+        Assert.assertEquals("1818", render(24));
+        Assert.assertEquals("1903e8", render(1000));
+        Assert.assertEquals("1a000f4240", render(1000000));
+        Assert.assertEquals("1b000000e8d4a51000", render(1000000000000L));
+        Assert.assertEquals("20", render(-1));
+        Assert.assertEquals("3863", render(-100));
+        Assert.assertEquals("3903e7", render(-1000));
+        Assert.assertEquals("3b7fffffffffffffff", render(Long.MIN_VALUE));
+    }
+    
+    /**
+     * Tests floating point numbers.
+     */
+    @Test
+    public void doubles() {
+        Assert.assertEquals("fa3fc00000", render(1.5));
+        Assert.assertEquals("fb3ff199999999999a", render(1.1));
+        Assert.assertEquals("fa7f800000", render(Double.POSITIVE_INFINITY));
+        Assert.assertEquals("fa7fc00000", render(Double.NaN));
+    }
+    
+    /**
+     * Tests simple values.
+     */
+    @Test
+    public void simple() {
+        Assert.assertEquals("f4f5f6", render(false, true, null));
+    }
+    
+    /**
+     * Tests strings.
+     */
+    @Test
+    public void strings() {
+        Assert.assertEquals("60", render(""));
+        Assert.assertEquals("6161", render("a"));
+        Assert.assertEquals("62c3bc", render("\u00fc"));
+        Assert.assertEquals("7818" + Strings.repeat("61", 24), render(Strings.repeat("a", 24)));
+    }
+    
+    /**
+     * Tests streamed strings.
+     */
+    @Test
+    public void reader() {
+        Assert.assertEquals("7f63616263ff", render(new StringReader("abc")));
+    }
+    
+    /**
+     * Tests that surrogate pairs are not split between chunks.
+     */
+    @Test
+    public void readerSurrogates() {
+        final String value = Strings.repeat("a", 8191) + "\ud83d\ude00";
+        final String hex = render(new StringReader(value));
+        Assert.assertEquals("7f791fff" + Strings.repeat("61", 8191) + "64f09f9880ff", hex);
+    }
+    
+    /**
+     * Tests that byte arrays and streams are written as raw byte strings.
+     */
+    @Test
+    public void bytes() {
+        Assert.assertEquals("43010203", render(new byte[] {1, 2, 3}));
+        Assert.assertEquals("5f43010203ff", render(new ByteArrayInputStream(new byte[] {1, 2, 3})));
+    }
+    
+    /**
+     * Tests primitive arrays.
+     */
+    @Test
+    public void arrays() {
+        Assert.assertEquals("820120", render(new long[] {1, -1}));
+        Assert.assertEquals("81fa3fc00000", render(new double[] {1.5}));
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        new CborRenderer(stream).value(new long[] {1}).build();
+        Assert.assertEquals("8101", hex(stream));
+    }
+    
+    /**
+     * Tests nested structures.
+     */
+    @Test
+    public void nested() {
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        final CborRenderer unit = new CborRenderer(stream);
+        unit.map().key("a").value(1).key("b").list().value(2).value(3).endList().endMap();
+        Assert.assertSame(stream, unit.build());
+        Assert.assertEquals("bf61610161629f0203ffff", hex(stream));
+    }
+    
+    /**
+     * Tests that output larger than the internal buffer is written completely.
+     */
+    @Test
+    public void large() {
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        final CborRenderer unit = new CborRenderer(stream);
+        unit.list();
+        for (int i = 0; i < 10000; i++) {
+            unit.value(1000);
+        }
+        unit.value(new byte[20000]).endList();
+        Assert.assertEquals(1 + 10000 * 3 + 3 + 20000 + 1, stream.size());
+    }
+    
+}
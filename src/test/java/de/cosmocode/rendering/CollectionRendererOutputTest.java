@@ -0,0 +1,438 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ForwardingMap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import de.cosmocode.junit.UnitProvider;
+
+/**
+ * Tests the structure produced by {@link CollectionRenderer}.
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+public final class CollectionRendererOutputTest implements UnitProvider<CollectionRenderer> {
+
+    @Override
+    public CollectionRenderer unit() {
+        return new CollectionRenderer();
+    }
+    
+    /**
+     * Tests nested lists and maps.
+     */
+    @Test
+    public void nested() {
+        final CollectionRenderer unit = unit();
+        unit.map();
+        unit.key("a").value(Arrays.asList(1, 2L, null));
+        unit.key("b").map().key("c").value(true).key("d").map().endMap().endMap();
+        unit.key("e").list().list().endList().map().endMap().value(1.5).endList();
+        unit.key(null).value("f");
+        unit.endMap();
+        
+        final Map<?, ?> map = Map.class.cast(unit.build());
+        Assert.assertEquals(Arrays.asList("a", "b", "e", null), Lists.newArrayList(map.keySet()));
+        Assert.assertEquals(Arrays.asList(1L, 2L, null), map.get("a"));
+        final Map<?, ?> b = Map.class.cast(map.get("b"));
+        Assert.assertEquals(Boolean.TRUE, b.get("c"));
+        Assert.assertEquals(Collections.emptyMap(), b.get("d"));
+        Assert.assertEquals(Arrays.asList(Collections.emptyList(), Collections.emptyMap(), 1.5), map.get("e"));
+        Assert.assertEquals("f", map.get(null));
+    }
+    
+    /**
+     * Tests that map keys keep their insertion order.
+     */
+    @Test
+    public void order() {
+        final CollectionRenderer unit = unit();
+        final List<String> keys = ImmutableList.of("z", "a", "y", "b", "x");
+        unit.map();
+        for (String key : keys) {
+            unit.key(key).value(key);
+        }
+        unit.endMap();
+        Assert.assertEquals(keys, Lists.newArrayList(Map.class.cast(unit.build()).keySet()));
+    }
+    
+    /**
+     * Tests {@link CollectionRenderer#list(int)} and {@link CollectionRenderer#map(int)}.
+     */
+    @Test
+    public void sized() {
+        final CollectionRenderer unit = unit();
+        unit.list(2).map(1).key("k");
+        unit.list(0).endList().endMap().value("v").endList();
+        final Object expected = Arrays.asList(Collections.singletonMap("k", Collections.emptyList()), "v");
+        Assert.assertEquals(expected, unit.build());
+    }
+    
+    /**
+     * Tests {@link CollectionRenderer#list(int)} with a negative size.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void sizedNegative() {
+        unit().list(-1);
+    }
+    
+    /**
+     * Tests primitive arrays.
+     */
+    @Test
+    public void arrays() {
+        final long[] longs = {1, 2};
+        final CollectionRenderer unit = unit();
+        unit.map();
+        unit.key("longs").value(longs);
+        unit.key("doubles").value(new double[] {0.5});
+        unit.key("ints").value((Object) new int[] {3});
+        unit.key("chars").value((Object) new char[] {'a'});
+        unit.endMap();
+        longs[0] = 3;
+        
+        final Map<?, ?> map = Map.class.cast(unit.build());
+        Assert.assertEquals(Arrays.asList(1L, 2L), map.get("longs"));
+        Assert.assertEquals(Arrays.asList(0.5), map.get("doubles"));
+        Assert.assertEquals(Arrays.asList(3L), map.get("ints"));
+        Assert.assertEquals(Arrays.asList(97L), map.get("chars"));
+    }
+    
+    /**
+     * Tests that streamed values are rendered as strings.
+     */
+    @Test
+    public void streams() {
+        final byte[] large = new byte[10000];
+        new Random(0).nextBytes(large);
+        final CollectionRenderer unit = unit();
+        unit.list();
+        unit.value(new StringReader("reader"));
+        unit.value((Object) new ByteArrayInputStream(new byte[] {1, 2, 3}));
+        unit.value((Object) large);
+        unit.endList();
+        final List<?> list = List.class.cast(unit.build());
+        Assert.assertEquals("reader", list.get(0));
+        Assert.assertEquals("AQID", list.get(1));
+        Assert.assertEquals(new String(Base64.encodeBase64(large), Charsets.US_ASCII), list.get(2));
+    }
+    
+    /**
+     * Tests streamed Base64 encoding for lengths around block boundaries,
+     * including multiples of three larger than the streaming threshold.
+     */
+    @Test
+    public void streamsMultipleOfThree() {
+        final Random random = new Random(0);
+        for (int length : new int[] {0, 3, 9000, 9216, 9217, 12288}) {
+            final byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+            final CollectionRenderer unit = unit();
+            unit.list().value((Object) bytes).value((Object) new ByteArrayInputStream(bytes)).endList();
+            final String expected = new String(Base64.encodeBase64(bytes), Charsets.US_ASCII);
+            Assert.assertEquals(Arrays.asList(expected, expected), unit.build());
+        }
+    }
+    
+    /**
+     * Tests that {@link CollectionRenderer#reset()} allows reuse without
+     * affecting previously built structures.
+     */
+    @Test
+    public void reset() {
+        final CollectionRenderer unit = unit();
+        unit.setMapping(Mappings.newMapping(Collections.<Class<?>, ValueRenderer<?>>emptyMap()));
+        unit.list().value("a").endList();
+        final Object first = unit.build();
+        Assert.assertSame(unit, unit.reset());
+        unit.map().key("b").value(new Object() {
+            
+            @Override
+            public String toString() {
+                return "c";
+            }
+            
+        }).endMap();
+        Assert.assertEquals(Arrays.asList("a"), first);
+        Assert.assertEquals(Collections.singletonMap("b", "c"), unit.build());
+    }
+    
+    /**
+     * Tests that {@link CollectionRenderer#reset()} discards unfinished structures.
+     */
+    @Test
+    public void resetUnfinished() {
+        final CollectionRenderer unit = unit();
+        unit.map().key("a").list().value(1);
+        unit.reset().list().value(2).endList();
+        Assert.assertEquals(Arrays.asList(2L), unit.build());
+    }
+    
+    /**
+     * Tests that compact maps are equal to the default maps.
+     */
+    @Test
+    public void compactMaps() {
+        final List<Object> records = Lists.newArrayList();
+        for (int i = 0; i < 100; i++) {
+            final Map<String, Object> record = new LinkedHashMap<String, Object>();
+            record.put("id", Long.valueOf(i));
+            record.put(i % 3 == 0 ? "odd" : "name", "name" + i);
+            record.put(null, Arrays.asList(i));
+            records.add(record);
+        }
+        final Object expected = unit().value(records).build();
+        final CollectionRenderer unit = unit();
+        unit.enableCompactMaps();
+        final Object actual = unit.value(records).build();
+        Assert.assertEquals(expected, actual);
+        Assert.assertEquals(actual, expected);
+        Assert.assertEquals(expected.hashCode(), actual.hashCode());
+        Assert.assertEquals(expected.toString(), actual.toString());
+        final Map<?, ?> first = (Map<?, ?>) ((List<?>) actual).get(1);
+        Assert.assertEquals("name1", first.get("name"));
+        Assert.assertTrue(first.containsKey(null));
+        Assert.assertFalse(first.containsKey("odd"));
+        Assert.assertNull(first.get("odd"));
+    }
+    
+    /**
+     * Tests that compact maps with identical keys share their keys.
+     */
+    @Test
+    public void compactMapsShareKeys() {
+        final CollectionRenderer unit = unit();
+        unit.enableCompactMaps();
+        unit.list();
+        unit.map().key(new StringBuilder("a")).value(1).key(new StringBuilder("b")).value(2).endMap();
+        unit.map(2).key(new StringBuilder("a")).value(3).key(new StringBuilder("b")).value(4).endMap();
+        unit.endList();
+        final List<?> maps = (List<?>) unit.build();
+        final Iterator<?> first = ((Map<?, ?>) maps.get(0)).keySet().iterator();
+        final Iterator<?> second = ((Map<?, ?>) maps.get(1)).keySet().iterator();
+        Assert.assertSame(first.next(), second.next());
+        Assert.assertSame(first.next(), second.next());
+    }
+    
+    /**
+     * Tests that duplicate keys in compact maps behave like in {@link LinkedHashMap}s.
+     */
+    @Test
+    public void compactMapsDuplicateKeys() {
+        final CollectionRenderer unit = unit();
+        unit.enableCompactMaps();
+        unit.map().key("a").value(1).key("b").value(2).key("a").value(3).endMap();
+        final Map<String, Object> expected = new LinkedHashMap<String, Object>();
+        expected.put("a", 3L);
+        expected.put("b", 2L);
+        final Map<?, ?> actual = (Map<?, ?>) unit.build();
+        Assert.assertEquals(Lists.newArrayList(expected.entrySet()), Lists.newArrayList(actual.entrySet()));
+    }
+    
+    /**
+     * Tests that large compact maps fall back to {@link LinkedHashMap}s.
+     */
+    @Test
+    public void compactMapsLarge() {
+        final CollectionRenderer unit = unit();
+        unit.enableCompactMaps();
+        final Map<String, Object> expected = new LinkedHashMap<String, Object>();
+        unit.map();
+        for (int i = 0; i < 40; i++) {
+            unit.key("key" + i).value(i);
+            expected.put("key" + i, Long.valueOf(i));
+        }
+        unit.endMap();
+        final Map<?, ?> actual = (Map<?, ?>) unit.build();
+        Assert.assertTrue(actual instanceof LinkedHashMap<?, ?>);
+        Assert.assertEquals(Lists.newArrayList(expected.entrySet()), Lists.newArrayList(actual.entrySet()));
+    }
+    
+    /**
+     * Tests that no more shapes are created once the limit has been reached.
+     */
+    @Test
+    public void compactMapsShapeLimit() {
+        final CollectionRenderer unit = unit();
+        unit.enableCompactMaps();
+        unit.list();
+        final int size = ShapedMap.Shape.MAX_SHAPES + 10;
+        for (int i = 0; i < size; i++) {
+            unit.map().key("id" + i).value(i).endMap();
+        }
+        unit.map().key("id0").value(0).endMap();
+        unit.endList();
+        final List<?> maps = (List<?>) unit.build();
+        for (int i = 0; i < size; i++) {
+            Assert.assertEquals(Collections.singletonMap("id" + i, Long.valueOf(i)), maps.get(i));
+            Assert.assertEquals(i < ShapedMap.Shape.MAX_SHAPES, maps.get(i) instanceof ShapedMap);
+        }
+        Assert.assertTrue(maps.get(size) instanceof ShapedMap);
+    }
+    
+    /**
+     * Tests that compact maps are serialized as {@link LinkedHashMap}s.
+     * 
+     * @throws IOException should not happen
+     * @throws ClassNotFoundException should not happen
+     */
+    @Test
+    public void compactMapsSerializable() throws IOException, ClassNotFoundException {
+        final CollectionRenderer unit = unit();
+        unit.enableCompactMaps();
+        unit.map().key("a").value(1).key("b").map().key("c").value("d").endMap().endMap();
+        final Object expected = unit.build();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ObjectOutputStream output = new ObjectOutputStream(bytes);
+        output.writeObject(expected);
+        output.close();
+        final ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        final Object actual = input.readObject();
+        Assert.assertTrue(actual instanceof LinkedHashMap<?, ?>);
+        Assert.assertTrue(((Map<?, ?>) actual).get("b") instanceof LinkedHashMap<?, ?>);
+        Assert.assertEquals(expected, actual);
+    }
+    
+    /**
+     * Tests that compact maps are unmodifiable.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void compactMapsUnmodifiable() {
+        final CollectionRenderer unit = unit();
+        unit.enableCompactMaps();
+        unit.map().key("a").value(1).endMap();
+        @SuppressWarnings("unchecked")
+        final Map<String, Object> map = (Map<String, Object>) unit.build();
+        map.put("a", 2L);
+    }
+    
+    /**
+     * Tests that equal keys share the same instance.
+     */
+    @Test
+    public void keysInterned() {
+        final CollectionRenderer unit = unit();
+        unit.list();
+        unit.map().key(new StringBuilder("key")).value(1).endMap();
+        unit.map().key(new StringBuilder("key")).value(2).endMap();
+        unit.endList();
+        final List<?> maps = (List<?>) unit.build();
+        Assert.assertSame(
+            ((Map<?, ?>) maps.get(0)).keySet().iterator().next(), 
+            ((Map<?, ?>) maps.get(1)).keySet().iterator().next());
+    }
+    
+    /**
+     * Tests {@link CollectionRenderer#enableValueDeduplication()}.
+     */
+    @Test
+    public void valueDeduplication() {
+        final CollectionRenderer unit = unit();
+        unit.enableValueDeduplication();
+        unit.list().value(new StringBuilder("ok")).value(new StringBuilder("ok")).endList();
+        final List<?> list = (List<?>) unit.build();
+        Assert.assertEquals(Arrays.asList("ok", "ok"), list);
+        Assert.assertSame(list.get(0), list.get(1));
+    }
+    
+    /**
+     * Tests that values are not deduplicated by default.
+     */
+    @Test
+    public void valueDeduplicationDisabled() {
+        final CollectionRenderer unit = unit();
+        final String first = new String("ok");
+        final String second = new String("ok");
+        unit.list().value(first).value(second).endList();
+        final List<?> list = (List<?>) unit.build();
+        Assert.assertSame(first, list.get(0));
+        Assert.assertSame(second, list.get(1));
+    }
+    
+    /**
+     * A {@link Mapping} which records all lookups.
+     */
+    private static final class RecordingMapping extends ForwardingMap<Class<?>, ValueRenderer<?>> implements Mapping {
+        
+        private final Mapping mapping = Mappings.newMapping();
+        
+        private final List<Class<?>> lookups = Lists.newArrayList();
+        
+        @Override
+        protected Map<Class<?>, ValueRenderer<?>> delegate() {
+            return mapping;
+        }
+        
+        @Override
+        public <T> ValueRenderer<T> find(Class<? extends T> type) {
+            lookups.add(type);
+            return mapping.find(type);
+        }
+        
+    }
+    
+    /**
+     * Tests that custom mappings using the default renderers for common types
+     * allow these types to bypass the lookup.
+     */
+    @Test
+    public void commonTypesWithoutLookup() {
+        final RecordingMapping mapping = new RecordingMapping();
+        final CollectionRenderer unit = unit();
+        unit.setMapping(mapping);
+        mapping.lookups.clear();
+        unit.list().value((Object) "a").value((Object) 1).value((Object) 2L).value((Object) true);
+        Assert.assertEquals(Collections.emptyList(), mapping.lookups);
+        
+        mapping.put(Long.class, new ValueRenderer<Long>() {
+            
+            @Override
+            public void render(Long value, Renderer r) throws RenderingException {
+                r.value(-value);
+            }
+            
+        });
+        unit.setMapping(mapping);
+        mapping.lookups.clear();
+        unit.value((Object) "b").value((Object) 3L).endList();
+        Assert.assertEquals(Arrays.<Class<?>>asList(String.class, Long.class), mapping.lookups);
+        Assert.assertEquals(Arrays.<Object>asList("a", 1L, 2L, true, "b", -3L), unit.build());
+    }
+    
+}
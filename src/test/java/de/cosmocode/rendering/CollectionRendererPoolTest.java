@@ -0,0 +1,76 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.cosmocode.junit.UnitProvider;
+
+/**
+ * Tests {@link CollectionRendererPool}.
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+public final class CollectionRendererPoolTest implements UnitProvider<CollectionRendererPool> {
+
+    @Override
+    public CollectionRendererPool unit() {
+        return new CollectionRendererPool(1);
+    }
+    
+    /**
+     * Tests that released renderers are reused in their initial state.
+     */
+    @Test
+    public void reuse() {
+        final CollectionRendererPool unit = unit();
+        final CollectionRenderer renderer = unit.acquire();
+        renderer.list().value(1);
+        unit.release(renderer);
+        final CollectionRenderer reused = unit.acquire();
+        Assert.assertSame(renderer, reused);
+        Assert.assertEquals(Arrays.asList(2L), reused.list().value(2).endList().build());
+    }
+    
+    /**
+     * Tests that the pool doesn't keep more than its capacity.
+     */
+    @Test
+    public void bounded() {
+        final CollectionRendererPool unit = unit();
+        final CollectionRenderer first = unit.acquire();
+        final CollectionRenderer second = unit.acquire();
+        Assert.assertNotSame(first, second);
+        unit.release(first);
+        unit.release(second);
+        Assert.assertSame(first, unit.acquire());
+        Assert.assertNotSame(second, unit.acquire());
+    }
+    
+    /**
+     * Tests that a negative capacity is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeCapacity() {
+        new CollectionRendererPool(-1);
+    }
+    
+}
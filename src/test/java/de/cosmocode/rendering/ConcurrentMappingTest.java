@@ -0,0 +1,108 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+import de.cosmocode.junit.UnitProvider;
+
+/**
+ * Tests {@link ConcurrentMapping}.
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+public final class ConcurrentMappingTest implements UnitProvider<Mapping> {
+
+    @Override
+    public Mapping unit() {
+        return Mappings.newConcurrentMapping();
+    }
+    
+    /**
+     * Tests that modifications are visible to {@link Mapping#find(Class)}.
+     */
+    @Test
+    public void modifications() {
+        final Mapping unit = unit();
+        Assert.assertSame(IterableValueRenderer.INSTANCE, unit.find(ArrayList.class));
+        unit.put(ArrayList.class, ObjectValueRenderer.INSTANCE);
+        Assert.assertSame(ObjectValueRenderer.INSTANCE, unit.find(ArrayList.class));
+        unit.remove(ArrayList.class);
+        Assert.assertSame(IterableValueRenderer.INSTANCE, unit.find(ArrayList.class));
+        unit.clear();
+        Assert.assertNull(unit.find(ArrayList.class));
+    }
+    
+    /**
+     * Tests that views can't be modified.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void views() {
+        unit().keySet().remove(String.class);
+    }
+    
+    /**
+     * Tests lookups running concurrently to modifications.
+     * 
+     * @throws Exception if a lookup failed
+     */
+    @Test
+    public void concurrent() throws Exception {
+        final Mapping unit = unit();
+        final ExecutorService service = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Void>> futures = Lists.newArrayList();
+            for (int i = 0; i < 4; i++) {
+                futures.add(service.submit(new Callable<Void>() {
+                    
+                    @Override
+                    public Void call() {
+                        for (int j = 0; j < 10000; j++) {
+                            final ValueRenderer<?> found = unit.find(ArrayList.class);
+                            Assert.assertTrue(found == IterableValueRenderer.INSTANCE 
+                                || found == ObjectValueRenderer.INSTANCE);
+                        }
+                        return null;
+                    }
+                    
+                }));
+            }
+            for (int i = 0; i < 100; i++) {
+                unit.put(ArrayList.class, ObjectValueRenderer.INSTANCE);
+                unit.remove(ArrayList.class);
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            service.shutdownNow();
+        }
+        Assert.assertSame(IterableValueRenderer.INSTANCE, unit.find(ArrayList.class));
+    }
+    
+}
@@ -0,0 +1,144 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Tests the cycle detection of {@link AbstractRenderer}.
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+public final class CycleDetectionTest {
+
+    /**
+     * A renderable which renders another renderable.
+     */
+    private static final class Node implements Renderable {
+        
+        private Node next;
+        
+        @Override
+        public void render(Renderer r, RenderingLevel level) throws RenderingException {
+            r.key("next").value(next);
+        }
+        
+    }
+    
+    private final ValueRenderer<Object> placeholder = new ValueRenderer<Object>() {
+        
+        @Override
+        public void render(Object value, Renderer r) throws RenderingException {
+            r.value("cycle");
+        }
+        
+    };
+    
+    private CollectionRenderer unit() {
+        final CollectionRenderer unit = new CollectionRenderer();
+        unit.enableCycleDetection();
+        return unit;
+    }
+    
+    /**
+     * Tests that acyclic structures, including shared references, render as usual.
+     */
+    @Test
+    public void acyclic() {
+        final List<Object> shared = Arrays.<Object>asList(1, "a");
+        final Map<String, Object> map = Maps.newLinkedHashMap();
+        map.put("a", shared);
+        map.put("b", shared);
+        map.put("c", ImmutableMultimap.of("d", shared));
+        map.put("e", Collections.singletonList(Collections.singletonMap("f", new Object[] {shared})));
+        final Object expected = new CollectionRenderer().value(map).build();
+        Assert.assertEquals(expected, unit().value(map).build());
+    }
+    
+    /**
+     * Tests a list containing itself.
+     */
+    @Test(expected = RenderingException.class)
+    public void list() {
+        final List<Object> list = Lists.newArrayList();
+        list.add(list);
+        unit().value(list);
+    }
+    
+    /**
+     * Tests a map containing itself indirectly.
+     */
+    @Test(expected = RenderingException.class)
+    public void map() {
+        final Map<String, Object> map = Maps.newHashMap();
+        map.put("list", Collections.singletonList(map));
+        unit().value(map);
+    }
+    
+    /**
+     * Tests renderables referencing each other.
+     */
+    @Test(expected = RenderingException.class)
+    public void renderable() {
+        final Node first = new Node();
+        final Node second = new Node();
+        first.next = second;
+        second.next = first;
+        unit().value(first, Rendering.maxLevel());
+    }
+    
+    /**
+     * Tests that cycles are replaced by the placeholder.
+     */
+    @Test
+    public void placeholder() {
+        final Map<String, Object> map = Maps.newLinkedHashMap();
+        map.put("a", 1L);
+        map.put("self", map);
+        final CollectionRenderer unit = new CollectionRenderer();
+        unit.enableCycleDetection(placeholder);
+        final Map<String, Object> expected = Maps.newLinkedHashMap();
+        expected.put("a", 1L);
+        expected.put("self", "cycle");
+        Assert.assertEquals(expected, unit.value(map).build());
+    }
+    
+    /**
+     * Tests that renderable cycles are replaced by the placeholder, using a streaming renderer.
+     */
+    @Test
+    public void placeholderJson() {
+        final Node node = new Node();
+        node.next = node;
+        final JsonRenderer unit = new JsonRenderer(new StringBuilder());
+        unit.enableCycleDetection(placeholder);
+        unit.value(node, Rendering.maxLevel());
+        Assert.assertEquals("{\"next\":\"cycle\"}", unit.build().toString());
+    }
+    
+}
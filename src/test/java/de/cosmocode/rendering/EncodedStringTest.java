@@ -0,0 +1,131 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Tests {@link EncodedString}.
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+public final class EncodedStringTest {
+
+    private static final String TEXT = "quote\" backslash\\ newline\n umlaut\u00e4";
+    
+    /**
+     * Tests {@link EncodedString#of(CharSequence)}.
+     */
+    @Test
+    public void of() {
+        final EncodedString unit = EncodedString.of(new StringBuilder(TEXT));
+        Assert.assertEquals(TEXT, unit.toString());
+        Assert.assertEquals(TEXT.length(), unit.length());
+        Assert.assertEquals(EncodedString.of(TEXT), unit);
+        Assert.assertEquals(EncodedString.of(TEXT).hashCode(), unit.hashCode());
+        Assert.assertSame(unit, EncodedString.of(unit));
+    }
+    
+    /**
+     * Tests that enum constants are cached.
+     */
+    @Test
+    public void constants() {
+        final EncodedString unit = EncodedString.of(TimeUnit.SECONDS);
+        Assert.assertEquals("SECONDS", unit.toString());
+        Assert.assertSame(unit, EncodedString.of(TimeUnit.SECONDS));
+        Assert.assertEquals("SECONDS", EnumKeyRenderer.INSTANCE.apply(TimeUnit.SECONDS));
+        Assert.assertEquals("DAYS", EncodedString.of(TimeUnit.DAYS).toString());
+    }
+    
+    /**
+     * Tests that enum keys are passed on as cached encoded strings.
+     */
+    @Test
+    public void enumKeys() {
+        final List<CharSequence> keys = Lists.newArrayList();
+        final Renderer target = new ForwardingRenderer() {
+            
+            private final Renderer delegate = new CollectionRenderer();
+            
+            @Override
+            protected Renderer delegate() {
+                return delegate;
+            }
+            
+            @Override
+            public Renderer key(CharSequence key) throws RenderingException {
+                keys.add(key);
+                return super.key(key);
+            }
+            
+        };
+        final RecordingRenderer unit = new RecordingRenderer();
+        unit.map().key(TimeUnit.SECONDS).value(1).endMap();
+        unit.replay(target);
+        Assert.assertEquals(1, keys.size());
+        Assert.assertSame(EncodedString.of(TimeUnit.SECONDS), keys.get(0));
+    }
+    
+    /**
+     * Tests that {@link JsonRenderer} produces the same output for encoded strings.
+     */
+    @Test
+    public void json() {
+        final String expected = new JsonRenderer(new StringBuilder()).
+            map().key(TEXT).value(TEXT).endMap().build().toString();
+        final EncodedString unit = EncodedString.of(TEXT);
+        for (int i = 0; i < 2; i++) {
+            final String actual = new JsonRenderer(new StringBuilder()).
+                map().key(unit).value(unit).endMap().build().toString();
+            Assert.assertEquals(expected, actual);
+        }
+    }
+    
+    /**
+     * Tests that {@link CborRenderer} produces the same output for encoded strings.
+     */
+    @Test
+    public void cbor() {
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        new CborRenderer(expected).map().key(TEXT).value(TEXT).endMap().build();
+        final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        final EncodedString unit = EncodedString.of(TEXT);
+        new CborRenderer(actual).map().key(unit).value(unit).endMap().build();
+        Assert.assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+    }
+    
+    /**
+     * Tests that {@link CollectionRenderer} produces plain strings.
+     */
+    @Test
+    public void collection() {
+        final CollectionRenderer unit = new CollectionRenderer();
+        final Object actual = unit.list().value(TimeUnit.SECONDS).value(Object.class).endList().build();
+        Assert.assertEquals(Arrays.asList("SECONDS", "java.lang.Object"), actual);
+    }
+    
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tests the metrics recorded by {@link InstrumentingRenderer}.
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+public final class InstrumentingRendererMetricsTest {
+
+    /**
+     * Tests that nested values rendered by value renderers are recorded.
+     */
+    @Test
+    public void nested() {
+        final CountingRenderingMetrics metrics = new CountingRenderingMetrics();
+        final Renderer unit = InstrumentingRenderer.instrument(new CollectionRenderer(), metrics);
+        final Map<String, Object> value = ImmutableMap.<String, Object>of(
+            "a", Arrays.asList("xy", 1L, null),
+            "b", true
+        );
+        unit.list().value(value).value(new StringReader("abc")).endList();
+        
+        Assert.assertEquals(Arrays.asList(value, "abc"), unit.build());
+        Assert.assertEquals(2, metrics.getLists());
+        Assert.assertEquals(1, metrics.getMaps());
+        Assert.assertEquals(2, metrics.getKeys());
+        Assert.assertEquals(3, metrics.getMaxDepth());
+        Assert.assertEquals(5, metrics.getCharacters());
+        Assert.assertEquals(Long.valueOf(1L), metrics.getValues().get(String.class));
+        Assert.assertEquals(Long.valueOf(1L), metrics.getValues().get(long.class));
+        Assert.assertEquals(Long.valueOf(1L), metrics.getValues().get(boolean.class));
+        Assert.assertEquals(Long.valueOf(1L), metrics.getValues().get(Void.class));
+        Assert.assertEquals(Long.valueOf(1L), metrics.getValues().get(Reader.class));
+        Assert.assertTrue(metrics.getNanos().containsKey(IterableValueRenderer.class));
+        Assert.assertEquals(4, metrics.getHits());
+        Assert.assertEquals(0, metrics.getMisses());
+    }
+    
+    /**
+     * Tests that failed lookups are recorded.
+     */
+    @Test
+    public void miss() {
+        final CountingRenderingMetrics metrics = new CountingRenderingMetrics();
+        final Renderer unit = InstrumentingRenderer.instrument(new CollectionRenderer(), metrics);
+        unit.setMapping(Mappings.newMapping(Collections.<Class<?>, ValueRenderer<?>>emptyMap()));
+        unit.list();
+        try {
+            unit.value(new Object());
+            Assert.fail("Expected RenderingException");
+        } catch (RenderingException e) {
+            Assert.assertEquals(0, metrics.getHits());
+            Assert.assertEquals(1, metrics.getMisses());
+        }
+    }
+    
+    /**
+     * Tests that disabled metrics don't decorate the renderer.
+     */
+    @Test
+    public void disabled() {
+        final CountingRenderingMetrics metrics = new CountingRenderingMetrics();
+        metrics.setEnabled(false);
+        final Renderer renderer = new CollectionRenderer();
+        Assert.assertSame(renderer, InstrumentingRenderer.instrument(renderer, metrics));
+    }
+    
+}
@@ -0,0 +1,158 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+
+import de.cosmocode.junit.UnitProvider;
+
+/**
+ * Tests the output produced by {@link JsonRenderer}.
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+public final class JsonRendererOutputTest implements UnitProvider<JsonRenderer> {
+
+    @Override
+    public JsonRenderer unit() {
+        return new JsonRenderer(new StringBuilder());
+    }
+    
+    /**
+     * Tests empty structures.
+     */
+    @Test
+    public void empty() {
+        Assert.assertEquals("[]", unit().list().endList().build().toString());
+        Assert.assertEquals("{}", unit().map().endMap().build().toString());
+    }
+    
+    /**
+     * Tests nested lists and maps.
+     */
+    @Test
+    public void nested() {
+        final JsonRenderer unit = unit();
+        unit.map();
+        unit.key("a").value(Arrays.asList(1, 2L, null));
+        unit.key("b").value(ImmutableMap.of("c", true, "d", ImmutableMap.of()));
+        unit.key("e").list().list().endList().map().endMap().value(1.5).endList();
+        unit.key(null).value("f");
+        unit.endMap();
+        Assert.assertEquals(
+            "{\"a\":[1,2,null],\"b\":{\"c\":true,\"d\":{}},\"e\":[[],{},1.5],\"null\":\"f\"}",
+            unit.build().toString()
+        );
+    }
+    
+    /**
+     * Tests escaping of strings.
+     */
+    @Test
+    public void escape() {
+        final String value = "\"quoted\" back\\slash\n\t\u0001 \u00e4";
+        final String expected = "[\"\\\"quoted\\\" back\\\\slash\\n\\t\\u0001 \u00e4\"]";
+        Assert.assertEquals(expected, unit().list().value(value).endList().build().toString());
+    }
+    
+    /**
+     * Tests that unpaired surrogates are escaped while valid pairs are kept.
+     */
+    @Test
+    public void surrogates() {
+        final String value = "a\ud800b\udc00\ud83d\ude00\ud800";
+        final String expected = "[\"a\\ud800b\\udc00\ud83d\ude00\\ud800\"]";
+        Assert.assertEquals(expected, unit().list().value(value).endList().build().toString());
+        
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        new JsonRenderer(stream).list().value("\udc00").endList();
+        Assert.assertEquals("[\"\\udc00\"]", new String(stream.toByteArray(), Charsets.UTF_8));
+    }
+    
+    /**
+     * Tests that surrogate pairs split across chunks of a reader are kept.
+     */
+    @Test
+    public void surrogatesStreamed() {
+        final StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 4095; i++) {
+            large.append('a');
+        }
+        large.append("\ud83d\ude00b\ud800");
+        final JsonRenderer unit = unit();
+        unit.list().value(new StringReader(large.toString())).endList();
+        final String expected = "[\"" + large.substring(0, large.length() - 1) + "\\ud800\"]";
+        Assert.assertEquals(expected, unit.build().toString());
+    }
+    
+    /**
+     * Tests that non finite doubles are rendered as null.
+     */
+    @Test
+    public void notFinite() {
+        final Object json = unit().list().value(Double.NaN).value(Double.POSITIVE_INFINITY).endList().build();
+        Assert.assertEquals("[null,null]", json.toString());
+    }
+    
+    /**
+     * Tests {@link JsonRenderer#JsonRenderer(java.io.OutputStream)}.
+     */
+    @Test
+    public void outputStream() {
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        new JsonRenderer(stream).list().value("\u00e4").endList();
+        Assert.assertEquals("[\"\u00e4\"]", new String(stream.toByteArray(), Charsets.UTF_8));
+    }
+    
+    /**
+     * Tests primitive arrays.
+     */
+    @Test
+    public void arrays() {
+        final JsonRenderer unit = unit();
+        unit.list().value(new long[] {1, 2}).value(new double[] {0.5, Double.NaN}).value(new long[0]);
+        unit.value((Object) new int[] {3, 4}).value((Object) new boolean[] {true}).endList();
+        Assert.assertEquals("[[1,2],[0.5,null],[],[3,4],[true]]", unit.build().toString());
+    }
+    
+    /**
+     * Tests streamed values.
+     */
+    @Test
+    public void streams() {
+        final StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            large.append("a\"");
+        }
+        final JsonRenderer unit = unit();
+        unit.list().value(new StringReader(large.toString()));
+        unit.value((Object) new ByteArrayInputStream(new byte[] {1, 2, 3})).endList();
+        final String expected = "[\"" + large.toString().replace("\"", "\\\"") + "\",\"AQID\"]";
+        Assert.assertEquals(expected, unit.build().toString());
+    }
+    
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Maps;
+
+/**
+ * Tests the limits enforced by {@link LimitingRenderer}.
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+public final class LimitingRendererLimitsTest {
+
+    private Renderer unit(RenderingLimits limits) {
+        return new LimitingRenderer(new CollectionRenderer(), limits);
+    }
+    
+    /**
+     * Tests that values within the limits are rendered unchanged.
+     */
+    @Test
+    public void within() {
+        final RenderingLimits limits = RenderingLimits.unlimited()
+            .maxDepth(2).maxSize(3).maxElements(8).maxCharacters(5);
+        final Renderer unit = unit(limits);
+        unit.list().value(Arrays.asList("ab", "c")).value(new long[] {1, 2}).value(new StringReader("de")).endList();
+        Assert.assertEquals(Arrays.asList(Arrays.asList("ab", "c"), Arrays.asList(1L, 2L), "de"), unit.build());
+    }
+    
+    /**
+     * Tests that self-referencing maps hit the depth limit.
+     */
+    @Test(expected = RenderingException.class)
+    public void depth() {
+        final Map<String, Object> map = Maps.newHashMap();
+        map.put("self", map);
+        unit(RenderingLimits.unlimited().maxDepth(64)).value(map);
+    }
+    
+    /**
+     * Tests that endless iterators hit the size limit.
+     */
+    @Test(expected = RenderingException.class)
+    public void size() {
+        final Iterator<Integer> endless = Iterators.cycle(1);
+        unit(RenderingLimits.unlimited().maxSize(1000)).value(endless);
+    }
+    
+    /**
+     * Tests that size hints exceeding the size limit are rejected early.
+     */
+    @Test(expected = RenderingException.class)
+    public void sizeHint() {
+        unit(RenderingLimits.unlimited().maxSize(2)).list(3);
+    }
+    
+    /**
+     * Tests that primitive arrays count all their elements.
+     */
+    @Test(expected = RenderingException.class)
+    public void primitiveArray() {
+        unit(RenderingLimits.unlimited().maxElements(10)).list().value(new double[10]);
+    }
+    
+    /**
+     * Tests the total number of elements across nested structures.
+     */
+    @Test(expected = RenderingException.class)
+    public void elements() {
+        final Renderer unit = unit(RenderingLimits.unlimited().maxSize(2).maxElements(5));
+        unit.list().list().value(1).value(2).endList().list().value(3).value(4);
+    }
+    
+    /**
+     * Tests that streamed strings are aborted once the character limit is reached.
+     */
+    @Test(expected = RenderingException.class)
+    public void characters() {
+        unit(RenderingLimits.unlimited().maxCharacters(100)).list().value(new StringReader(Strings.repeat("a", 101)));
+    }
+    
+    /**
+     * Tests that keys count as characters.
+     */
+    @Test(expected = RenderingException.class)
+    public void keys() {
+        unit(RenderingLimits.unlimited().maxCharacters(3)).map().key("ab").value("cd");
+    }
+    
+}
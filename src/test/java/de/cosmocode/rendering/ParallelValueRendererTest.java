@@ -0,0 +1,141 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+/**
+ * Tests {@link ParallelValueRenderer}.
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+public final class ParallelValueRendererTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    
+    /**
+     * Shuts down the executor.
+     */
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    private List<Object> values(int size) {
+        final List<Object> values = Lists.newArrayList();
+        for (int i = 0; i < size; i++) {
+            values.add(ImmutableMap.of("id", i, "name", "item" + i, "tags", Collections.singletonList(i % 2 == 0)));
+        }
+        return values;
+    }
+    
+    /**
+     * Tests that the parallel result equals the sequential one for {@link CollectionRenderer}.
+     */
+    @Test
+    public void collection() {
+        final List<Object> values = values(1000);
+        final Object expected = new CollectionRenderer().value(values).build();
+        final ValueRenderer<Iterable<?>> unit = new ParallelValueRenderer(executor, 64);
+        Assert.assertEquals(expected, new CollectionRenderer().value(values, unit).build());
+    }
+    
+    /**
+     * Tests that the parallel result equals the sequential one for {@link JsonRenderer}.
+     */
+    @Test
+    public void json() {
+        final List<Object> values = values(1000);
+        final String expected = new JsonRenderer(new StringBuilder()).value(values).build().toString();
+        final ValueRenderer<Iterable<?>> unit = new ParallelValueRenderer(executor, 7);
+        final JsonRenderer renderer = new JsonRenderer(new StringBuilder());
+        renderer.map().key("values").value(values, unit).endMap();
+        Assert.assertEquals("{\"values\":" + expected + "}", renderer.build().toString());
+    }
+    
+    /**
+     * Tests empty and null iterables.
+     */
+    @Test
+    public void empty() {
+        final ValueRenderer<Iterable<?>> unit = new ParallelValueRenderer(executor, 8);
+        final CollectionRenderer renderer = new CollectionRenderer();
+        final List<Object> empty = Collections.emptyList();
+        renderer.list().value(empty, unit).value((Iterable<?>) null, unit).endList();
+        Assert.assertEquals(Lists.newArrayList(empty, null), renderer.build());
+    }
+    
+    /**
+     * Tests that nested usage on a single threaded executor doesn't deadlock.
+     */
+    @Test(timeout = 10000)
+    public void nestedSingleThread() {
+        final ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            final Mapping mapping = Mappings.newMapping();
+            final ValueRenderer<Iterable<?>> unit = new ParallelValueRenderer(single, 1, mapping);
+            mapping.put(ArrayList.class, unit);
+            final List<Object> values = Lists.newArrayList();
+            for (int i = 0; i < 8; i++) {
+                values.add(Lists.newArrayList(i, Lists.newArrayList(i, i + 1), i + 2));
+            }
+            final Object expected = new CollectionRenderer().value(values).build();
+            Assert.assertEquals(expected, new CollectionRenderer().value(values, unit).build());
+        } finally {
+            single.shutdownNow();
+        }
+    }
+    
+    /**
+     * Tests that rejected chunks are rendered by the calling thread.
+     */
+    @Test
+    public void rejected() {
+        final ExecutorService rejecting = Executors.newSingleThreadExecutor();
+        rejecting.shutdown();
+        final List<Object> values = values(100);
+        final Object expected = new CollectionRenderer().value(values).build();
+        final ValueRenderer<Iterable<?>> unit = new ParallelValueRenderer(rejecting, 10);
+        Assert.assertEquals(expected, new CollectionRenderer().value(values, unit).build());
+    }
+    
+    /**
+     * Tests that failures in other threads are propagated.
+     */
+    @Test(expected = RenderingException.class)
+    public void failure() {
+        final List<Object> values = values(100);
+        values.add(new Object());
+        final ValueRenderer<Iterable<?>> unit = new ParallelValueRenderer(executor, 10, 
+            Mappings.newMapping(Collections.<Class<?>, ValueRenderer<?>>singletonMap(Map.class, MapValueRenderer.INSTANCE)));
+        new CollectionRenderer().value(values, unit);
+    }
+    
+}
@@ -0,0 +1,191 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+/**
+ * Tests {@link RecordingRenderer}.
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+public final class RecordingRendererTest {
+
+    private Map<String, Object> structure() {
+        final List<Object> values = Lists.newArrayList();
+        for (int i = 0; i < 100; i++) {
+            values.add(ImmutableMap.of("id", i, "ratio", i / 3.0, "flag", i % 2 == 0, "name", "item" + i));
+        }
+        values.add(null);
+        return ImmutableMap.<String, Object>of("values", values, "empty", ImmutableMap.of());
+    }
+    
+    /**
+     * Tests that a replay into {@link CollectionRenderer} produces the original structure.
+     */
+    @Test
+    public void collection() {
+        final Map<String, Object> structure = structure();
+        final RecordingRenderer unit = new RecordingRenderer();
+        unit.value(structure);
+        Assert.assertEquals(new CollectionRenderer().value(structure).build(), 
+            unit.replay(new CollectionRenderer()).build());
+    }
+    
+    /**
+     * Tests that a recording can be replayed multiple times and into different renderers.
+     */
+    @Test
+    public void json() {
+        final Map<String, Object> structure = structure();
+        final String expected = new JsonRenderer(new StringBuilder()).value(structure).build().toString();
+        final RecordingRenderer unit = new RecordingRenderer();
+        unit.value(structure);
+        Assert.assertEquals(expected, unit.replay(new JsonRenderer(new StringBuilder())).build().toString());
+        Assert.assertEquals(expected, unit.replay(new JsonRenderer(new StringBuilder())).build().toString());
+    }
+    
+    /**
+     * Tests that size hints and special double values survive a replay.
+     */
+    @Test
+    public void sizeHintsAndDoubles() {
+        final List<Integer> hints = Lists.newArrayList();
+        final CollectionRenderer target = new CollectionRenderer();
+        final Renderer renderer = new ForwardingRenderer() {
+            
+            @Override
+            protected Renderer delegate() {
+                return target;
+            }
+            
+            @Override
+            public Renderer list(int expectedSize) throws RenderingException {
+                hints.add(expectedSize);
+                return super.list(expectedSize);
+            }
+            
+            @Override
+            public Renderer map(int expectedSize) throws RenderingException {
+                hints.add(expectedSize);
+                return super.map(expectedSize);
+            }
+            
+        };
+        
+        final RecordingRenderer unit = new RecordingRenderer();
+        unit.map(2).key("nan").value(Double.NaN).key("list").list(1).value(Long.MIN_VALUE).endList().endMap();
+        unit.replay(renderer);
+        Assert.assertEquals(Arrays.asList(2, 1), hints);
+        final Map<?, ?> result = (Map<?, ?>) target.build();
+        Assert.assertTrue(Double.isNaN((Double) result.get("nan")));
+        Assert.assertEquals(Arrays.asList(Long.MIN_VALUE), result.get("list"));
+    }
+    
+    /**
+     * Tests that primitive arrays are copied when being recorded.
+     */
+    @Test
+    public void primitiveArrays() {
+        final long[] longs = {1L, 2L, 3L};
+        final double[] doubles = {0.5, 1.5};
+        final RecordingRenderer unit = new RecordingRenderer();
+        unit.list().value(longs).value(doubles).value((long[]) null).endList();
+        longs[0] = 42L;
+        doubles[0] = 42.0;
+        final List<Object> expected = Lists.<Object>newArrayList(
+            Arrays.asList(1L, 2L, 3L), Arrays.asList(0.5, 1.5), null);
+        Assert.assertEquals(expected, unit.replay(new CollectionRenderer()).build());
+    }
+    
+    /**
+     * Tests that targets modifying primitive arrays don't corrupt the recording.
+     */
+    @Test
+    public void primitiveArraysReplayed() {
+        final RecordingRenderer unit = new RecordingRenderer();
+        unit.list().value(new long[] {1L}).value(new double[] {0.5}).endList();
+        final Renderer target = new ForwardingRenderer() {
+            
+            private final Renderer delegate = new CollectionRenderer();
+            
+            @Override
+            protected Renderer delegate() {
+                return delegate;
+            }
+            
+            @Override
+            public Renderer value(long[] values) throws RenderingException {
+                values[0] = 42L;
+                return super.value(values);
+            }
+            
+            @Override
+            public Renderer value(double[] values) throws RenderingException {
+                values[0] = 42.0;
+                return super.value(values);
+            }
+            
+        };
+        unit.replay(target);
+        final List<Object> expected = Lists.<Object>newArrayList(Arrays.asList(1L), Arrays.asList(0.5));
+        Assert.assertEquals(expected, unit.replay(new CollectionRenderer()).build());
+    }
+    
+    /**
+     * Tests that mutable char sequences are copied when being recorded.
+     */
+    @Test
+    public void mutableSequences() {
+        final StringBuilder builder = new StringBuilder("before");
+        final RecordingRenderer unit = new RecordingRenderer();
+        unit.list().value(builder).endList();
+        builder.setLength(0);
+        Assert.assertEquals(Arrays.asList("before"), unit.replay(new CollectionRenderer()).build());
+    }
+    
+    /**
+     * Tests that recording doesn't validate, but replaying does.
+     */
+    @Test(expected = RenderingException.class)
+    public void invalid() {
+        final RecordingRenderer unit = new RecordingRenderer();
+        unit.endMap().value(true);
+        Assert.assertFalse(unit.isEmpty());
+        unit.replay(new CollectionRenderer());
+    }
+    
+    /**
+     * Tests {@link RecordingRenderer#isEmpty()}.
+     */
+    @Test
+    public void empty() {
+        final RecordingRenderer unit = new RecordingRenderer();
+        Assert.assertTrue(unit.isEmpty());
+        Assert.assertSame(unit, unit.build());
+    }
+    
+}
@@ -0,0 +1,226 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tests {@link RenderingPlans}.
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+public final class RenderingPlansTest {
+
+    /**
+     * A simple bean rendered by a plan.
+     */
+    public static class Item {
+        
+        private final String name;
+        
+        private final Object tags;
+        
+        public Item(String name, Object tags) {
+            this.name = name;
+            this.tags = tags;
+        }
+        
+        @Rendered
+        public String getName() {
+            return name;
+        }
+        
+        @Rendered("labels")
+        public Object getTags() {
+            return tags;
+        }
+        
+        @Rendered
+        public boolean isActive() {
+            return name != null;
+        }
+        
+        @Rendered
+        public int size() {
+            return name == null ? 0 : name.length();
+        }
+        
+        public String getSecret() {
+            return "secret";
+        }
+        
+    }
+    
+    /**
+     * A renderable bean which is rendered by a plan when registered.
+     */
+    public static final class RenderableItem extends Item implements Renderable {
+        
+        public RenderableItem(String name) {
+            super(name, null);
+        }
+        
+        @Override
+        public void render(Renderer r, RenderingLevel level) throws RenderingException {
+            r.key("handwritten").value(true);
+        }
+        
+    }
+    
+    /**
+     * A bean implementing a generic interface method, which produces a bridge method.
+     */
+    public static final class Named implements Supplier<String> {
+        
+        @Rendered("name")
+        @Override
+        public String get() {
+            return "named";
+        }
+        
+    }
+    
+    /**
+     * A bean with a covariant getter, which produces a bridge method.
+     */
+    public static class Base {
+        
+        @Rendered
+        public Object getValue() {
+            return 1;
+        }
+        
+    }
+    
+    /**
+     * A bean overriding a getter covariantly.
+     */
+    public static final class Covariant extends Base {
+        
+        @Rendered
+        @Override
+        public String getValue() {
+            return "covariant";
+        }
+        
+    }
+    
+    /**
+     * An invalid bean.
+     */
+    public static final class Invalid {
+        
+        @Rendered
+        public String get(String key) {
+            return key;
+        }
+        
+    }
+    
+    private Object render(Object value, Mapping mapping) {
+        final CollectionRenderer renderer = new CollectionRenderer();
+        renderer.setMapping(mapping);
+        return renderer.list().value(value).endList().build();
+    }
+    
+    /**
+     * Tests that annotated properties are rendered.
+     */
+    @Test
+    public void properties() {
+        final Mapping mapping = Mappings.newMapping();
+        mapping.put(Item.class, RenderingPlans.of(Item.class));
+        final Object actual = render(new Item("abc", Arrays.asList("x", 1)), mapping);
+        final Map<String, Object> expected = ImmutableMap.<String, Object>of(
+            "active", true,
+            "labels", Arrays.asList("x", 1L),
+            "name", "abc",
+            "size", 3L
+        );
+        Assert.assertEquals(Arrays.asList(expected), actual);
+    }
+    
+    /**
+     * Tests that null properties are rendered as null.
+     */
+    @Test
+    public void nullProperties() {
+        final Mapping mapping = Mappings.newMapping();
+        mapping.put(Item.class, RenderingPlans.of(Item.class));
+        final Object actual = render(new Item(null, null), mapping);
+        final Map<String, Object> expected = ImmutableMap.<String, Object>of(
+            "active", false, 
+            "size", 0L
+        );
+        final Map<?, ?> map = (Map<?, ?>) ((Iterable<?>) actual).iterator().next();
+        Assert.assertEquals(4, map.size());
+        Assert.assertTrue(map.entrySet().containsAll(expected.entrySet()));
+        Assert.assertNull(map.get("name"));
+        Assert.assertNull(map.get("labels"));
+    }
+    
+    /**
+     * Tests that {@link RenderingPlans#of(Class)} caches plans.
+     */
+    @Test
+    public void cached() {
+        Assert.assertSame(RenderingPlans.of(Item.class), RenderingPlans.of(Item.class));
+    }
+    
+    /**
+     * Tests that a registered plan wins over {@link Renderable#render(Renderer, RenderingLevel)}.
+     */
+    @Test
+    public void renderable() {
+        final Mapping mapping = Mappings.newMapping();
+        final Object handwritten = render(new RenderableItem("a"), mapping);
+        Assert.assertEquals(Arrays.asList(ImmutableMap.of("handwritten", true)), handwritten);
+        mapping.put(RenderableItem.class, RenderingPlans.of(RenderableItem.class, mapping, Rendering.maxLevel()));
+        final Object planned = render(new RenderableItem("a"), mapping);
+        final Map<?, ?> map = (Map<?, ?>) ((Iterable<?>) planned).iterator().next();
+        Assert.assertEquals("a", map.get("name"));
+    }
+    
+    /**
+     * Tests that bridge methods of generic interfaces and covariant getters are ignored.
+     */
+    @Test
+    public void bridges() {
+        final Mapping mapping = Mappings.newMapping();
+        mapping.put(Named.class, RenderingPlans.of(Named.class));
+        mapping.put(Covariant.class, RenderingPlans.of(Covariant.class));
+        Assert.assertEquals(Arrays.asList(ImmutableMap.of("name", "named")), render(new Named(), mapping));
+        Assert.assertEquals(Arrays.asList(ImmutableMap.of("value", "covariant")), render(new Covariant(), mapping));
+    }
+    
+    /**
+     * Tests that methods taking parameters are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void invalid() {
+        RenderingPlans.of(Invalid.class);
+    }
+    
+}
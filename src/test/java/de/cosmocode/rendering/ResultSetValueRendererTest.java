@@ -0,0 +1,160 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tests {@link ResultSetValueRenderer}.
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+public final class ResultSetValueRendererTest {
+
+    private static final String[] COLUMNS = {"id", "price", "name", "active", "amount"};
+    
+    private static final int[] TYPES = {Types.BIGINT, Types.DOUBLE, Types.VARCHAR, Types.BOOLEAN, Types.DECIMAL};
+    
+    private int fetchSize;
+    
+    private boolean closed;
+    
+    private ResultSet resultSet(final Object[]... rows) {
+        final ResultSetMetaData meta = proxy(ResultSetMetaData.class, new InvocationHandler() {
+            
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("getColumnCount".equals(method.getName())) {
+                    return COLUMNS.length;
+                } else if ("getColumnName".equals(method.getName())) {
+                    return COLUMNS[(Integer) args[0] - 1];
+                } else if ("getColumnType".equals(method.getName())) {
+                    return TYPES[(Integer) args[0] - 1];
+                } else {
+                    throw new UnsupportedOperationException(method.getName());
+                }
+            }
+            
+        });
+        
+        return proxy(ResultSet.class, new InvocationHandler() {
+            
+            private int row = -1;
+            
+            private Object last;
+            
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                final String name = method.getName();
+                if ("getMetaData".equals(name)) {
+                    return meta;
+                } else if ("next".equals(name)) {
+                    return ++row < rows.length;
+                } else if ("setFetchSize".equals(name)) {
+                    fetchSize = (Integer) args[0];
+                    return null;
+                } else if ("close".equals(name)) {
+                    closed = true;
+                    return null;
+                } else if ("wasNull".equals(name)) {
+                    return last == null;
+                } else if ("getObject".equals(name) || "getString".equals(name)) {
+                    last = rows[row][(Integer) args[0] - 1];
+                    return last;
+                } else if ("getLong".equals(name) || "getDouble".equals(name) || "getBoolean".equals(name)) {
+                    last = rows[row][(Integer) args[0] - 1];
+                    if (last != null) {
+                        return last;
+                    } else if (method.getReturnType() == long.class) {
+                        return 0L;
+                    } else if (method.getReturnType() == double.class) {
+                        return 0d;
+                    } else {
+                        return false;
+                    }
+                } else {
+                    throw new UnsupportedOperationException(name);
+                }
+            }
+            
+        });
+    }
+    
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, handler));
+    }
+    
+    /**
+     * Tests rendering of a result set with typed columns.
+     */
+    @Test
+    public void render() {
+        final ResultSet results = resultSet(
+            new Object[] {1L, 0.5, "first", true, new BigDecimal("1.50")},
+            new Object[] {null, null, null, null, null}
+        );
+        final Renderer renderer = new CollectionRenderer();
+        ResultSetValueRenderer.INSTANCE.render(results, renderer);
+        
+        final Map<?, ?> map = Map.class.cast(renderer.build());
+        Assert.assertEquals(2L, map.get("size"));
+        Assert.assertEquals(Arrays.asList(COLUMNS), map.get("columns"));
+        final List<?> rows = List.class.cast(map.get("rows"));
+        Assert.assertEquals(2, rows.size());
+        Assert.assertEquals(ImmutableMap.of("id", 1L, "price", 0.5, "name", "first", "active", true, "amount", "1.50"),
+            rows.get(0));
+        final Map<?, ?> empty = Map.class.cast(rows.get(1));
+        Assert.assertEquals(Arrays.asList(COLUMNS), Arrays.asList(empty.keySet().toArray()));
+        Assert.assertEquals(Arrays.asList(null, null, null, null, null), Arrays.asList(empty.values().toArray()));
+        Assert.assertTrue(closed);
+    }
+    
+    /**
+     * Tests {@link ResultSetValueRenderer#withFetchSize(int)}.
+     */
+    @Test
+    public void fetchSize() {
+        final Renderer renderer = new CollectionRenderer();
+        ResultSetValueRenderer.withFetchSize(500).render(resultSet(), renderer);
+        Assert.assertEquals(500, fetchSize);
+        Assert.assertEquals(0L, Map.class.cast(renderer.build()).get("size"));
+    }
+    
+    /**
+     * Tests {@link ResultSetValueRenderer#withFetchSize(int)} with an invalid size.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void fetchSizeNegative() {
+        ResultSetValueRenderer.withFetchSize(-1);
+    }
+    
+}
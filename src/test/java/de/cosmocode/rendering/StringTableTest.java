@@ -0,0 +1,72 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests {@link StringTable}.
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+public final class StringTableTest {
+
+    /**
+     * Tests that equal sequences return the same instance.
+     */
+    @Test
+    public void intern() {
+        final StringTable unit = new StringTable(16);
+        final String first = unit.intern(new StringBuilder("value"));
+        Assert.assertEquals("value", first);
+        Assert.assertSame(first, unit.intern(new StringBuilder("value")));
+        Assert.assertSame(first, unit.intern(new String("value")));
+    }
+    
+    /**
+     * Tests that colliding sequences displace each other but stay correct.
+     */
+    @Test
+    public void displaced() {
+        final StringTable unit = new StringTable(1);
+        Assert.assertEquals("a", unit.intern("a"));
+        Assert.assertEquals("b", unit.intern(new StringBuilder("b")));
+        final String a = new String("a");
+        Assert.assertSame(a, unit.intern(a));
+        Assert.assertSame(a, unit.intern(new StringBuilder("a")));
+    }
+    
+    /**
+     * Tests that the empty string is supported.
+     */
+    @Test
+    public void empty() {
+        final StringTable unit = new StringTable(4);
+        Assert.assertEquals("", unit.intern(new StringBuilder()));
+    }
+    
+    /**
+     * Tests that capacities which are not a power of two are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void capacity() {
+        new StringTable(3);
+    }
+    
+}
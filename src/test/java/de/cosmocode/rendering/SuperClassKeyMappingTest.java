@@ -0,0 +1,90 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+import de.cosmocode.junit.UnitProvider;
+
+/**
+ * Tests the lookup cache of {@link SuperClassKeyMapping}.
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+public final class SuperClassKeyMappingTest implements UnitProvider<KeyMapping> {
+
+    @Override
+    public KeyMapping unit() {
+        return new SuperClassKeyMapping(Maps.newHashMap(KeyMappings.defaultMapping()));
+    }
+    
+    /**
+     * Tests that {@link KeyMapping#find(Class)} is stable.
+     */
+    @Test
+    public void cached() {
+        final KeyMapping unit = unit();
+        Assert.assertSame(ObjectKeyRenderer.INSTANCE, unit.find(Long.class));
+        Assert.assertSame(ObjectKeyRenderer.INSTANCE, unit.find(Long.class));
+    }
+    
+    /**
+     * Tests that {@link KeyMapping#put(Object, Object)} invalidates the cache.
+     */
+    @Test
+    public void put() {
+        final KeyMapping unit = unit();
+        Assert.assertSame(ObjectKeyRenderer.INSTANCE, unit.find(Long.class));
+        unit.put(Number.class, CharSequenceKeyRenderer.INSTANCE);
+        Assert.assertSame(CharSequenceKeyRenderer.INSTANCE, unit.find(Long.class));
+    }
+    
+    /**
+     * Tests that {@link KeyMapping#remove(Object)} invalidates the cache.
+     */
+    @Test
+    public void remove() {
+        final KeyMapping unit = unit();
+        Assert.assertSame(EnumKeyRenderer.INSTANCE, unit.find(TimeUnit.class));
+        unit.remove(Enum.class);
+        Assert.assertSame(ObjectKeyRenderer.INSTANCE, unit.find(TimeUnit.class));
+    }
+    
+    /**
+     * Tests that modifications through views invalidate the cache.
+     */
+    @Test
+    public void views() {
+        final KeyMapping unit = unit();
+        Assert.assertSame(EnumKeyRenderer.INSTANCE, unit.find(TimeUnit.class));
+        final Iterator<Class<?>> iterator = unit.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() == Enum.class) {
+                iterator.remove();
+            }
+        }
+        Assert.assertSame(ObjectKeyRenderer.INSTANCE, unit.find(TimeUnit.class));
+    }
+    
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map.Entry;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+import de.cosmocode.junit.UnitProvider;
+
+/**
+ * Tests the lookup cache of {@link SuperClassMapping}.
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+public final class SuperClassMappingTest implements UnitProvider<Mapping> {
+
+    @Override
+    public Mapping unit() {
+        return new SuperClassMapping(Maps.newHashMap(Mappings.defaultMapping()));
+    }
+    
+    /**
+     * Tests that {@link Mapping#find(Class)} is stable.
+     */
+    @Test
+    public void cached() {
+        final Mapping unit = unit();
+        Assert.assertSame(IterableValueRenderer.INSTANCE, unit.find(ArrayList.class));
+        Assert.assertSame(IterableValueRenderer.INSTANCE, unit.find(ArrayList.class));
+    }
+    
+    /**
+     * Tests that {@link Mapping#put(Object, Object)} invalidates the cache.
+     */
+    @Test
+    public void put() {
+        final Mapping unit = unit();
+        Assert.assertSame(MapValueRenderer.INSTANCE, unit.find(Maps.newLinkedHashMap().getClass()));
+        unit.put(Maps.newLinkedHashMap().getClass(), ObjectValueRenderer.INSTANCE);
+        Assert.assertSame(ObjectValueRenderer.INSTANCE, unit.find(Maps.newLinkedHashMap().getClass()));
+    }
+    
+    /**
+     * Tests that {@link Mapping#remove(Object)} invalidates the cache.
+     */
+    @Test
+    public void remove() {
+        final Mapping unit = unit();
+        Assert.assertSame(CharSequenceValueRenderer.INSTANCE, unit.find(String.class));
+        unit.remove(String.class);
+        unit.remove(CharSequence.class);
+        Assert.assertSame(ObjectValueRenderer.INSTANCE, unit.find(String.class));
+    }
+    
+    /**
+     * Tests that modifications through views invalidate the cache.
+     */
+    @Test
+    public void views() {
+        final Mapping unit = unit();
+        Assert.assertSame(CharSequenceValueRenderer.INSTANCE, unit.find(String.class));
+        unit.keySet().remove(String.class);
+        final Iterator<Entry<Class<?>, ValueRenderer<?>>> iterator = unit.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Entry<Class<?>, ValueRenderer<?>> entry = iterator.next();
+            if (entry.getKey() == CharSequence.class) {
+                entry.setValue(EnumValueRenderer.INSTANCE);
+            }
+        }
+        Assert.assertSame(EnumValueRenderer.INSTANCE, unit.find(String.class));
+        unit.values().removeAll(Collections.singleton(EnumValueRenderer.INSTANCE));
+        Assert.assertSame(ObjectValueRenderer.INSTANCE, unit.find(String.class));
+    }
+    
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tests the output of {@link TeeRenderer}.
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+public final class TeeRendererOutputTest {
+
+    private final Map<String, Object> structure = ImmutableMap.<String, Object>of(
+        "name", "tee", 
+        "values", Arrays.asList(1, 2.5, true, null), 
+        "longs", new long[] {1L, 2L}
+    );
+    
+    /**
+     * Tests that all delegates produce the same output as when used directly.
+     */
+    @Test
+    public void outputs() {
+        final TeeRenderer unit = new TeeRenderer(new CollectionRenderer(), new JsonRenderer(new StringBuilder()));
+        unit.value(structure);
+        final List<Object> results = unit.build();
+        Assert.assertEquals(2, results.size());
+        Assert.assertEquals(new CollectionRenderer().value(structure).build(), results.get(0));
+        Assert.assertEquals(
+            new JsonRenderer(new StringBuilder()).value(structure).build().toString(), 
+            results.get(1).toString());
+    }
+    
+    /**
+     * Tests that renderables are rendered only once.
+     */
+    @Test
+    public void renderOnce() {
+        final int[] calls = new int[1];
+        final Renderable renderable = new Renderable() {
+            
+            @Override
+            public void render(Renderer renderer, RenderingLevel level) throws RenderingException {
+                calls[0]++;
+                renderer.key("name").value("renderable");
+            }
+            
+        };
+        final TeeRenderer unit = new TeeRenderer(new CollectionRenderer(), new CollectionRenderer());
+        unit.value(renderable);
+        final List<Object> results = unit.build();
+        Assert.assertEquals(1, calls[0]);
+        Assert.assertEquals(ImmutableMap.of("name", "renderable"), results.get(0));
+        Assert.assertEquals(results.get(0), results.get(1));
+    }
+    
+    /**
+     * Tests that readers are passed to every delegate.
+     */
+    @Test
+    public void reader() {
+        final TeeRenderer unit = new TeeRenderer(new CollectionRenderer(), new JsonRenderer(new StringBuilder()));
+        unit.list().value(new StringReader("text")).endList();
+        final List<Object> results = unit.build();
+        Assert.assertEquals(Arrays.asList("text"), results.get(0));
+        Assert.assertEquals("[\"text\"]", results.get(1).toString());
+    }
+    
+    /**
+     * Tests that invalid operations are rejected.
+     */
+    @Test(expected = RenderingException.class)
+    public void invalid() {
+        new TeeRenderer(new CollectionRenderer(), new JsonRenderer(new StringBuilder())).endMap();
+    }
+    
+    /**
+     * Tests that at least one delegate is required.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void empty() {
+        new TeeRenderer();
+    }
+    
+}
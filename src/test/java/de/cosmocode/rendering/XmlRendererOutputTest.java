@@ -0,0 +1,242 @@
+/**
+ * Copyright 2010 CosmoCode GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.cosmocode.rendering;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableMap;
+
+import de.cosmocode.junit.UnitProvider;
+
+/**
+ * Tests the output produced by {@link XmlRenderer}.
+ *
+ * @since 1.3
+ * @author Willi Schoenborn
+ */
+public final class XmlRendererOutputTest implements UnitProvider<XmlRenderer> {
+
+    @Override
+    public XmlRenderer unit() {
+        return new XmlRenderer(new StringBuilder());
+    }
+    
+    /**
+     * Tests empty structures.
+     */
+    @Test
+    public void empty() {
+        Assert.assertEquals("<root></root>", unit().list().endList().build().toString());
+        Assert.assertEquals("<root></root>", unit().map().endMap().build().toString());
+    }
+    
+    /**
+     * Tests nested lists and maps.
+     */
+    @Test
+    public void nested() {
+        final XmlRenderer unit = unit();
+        unit.map();
+        unit.key("a").value(Arrays.asList(1, 2L, null));
+        unit.key("b").value(ImmutableMap.of("c", true, "d", ImmutableMap.of()));
+        unit.key("e").list().list().endList().map().endMap().value(1.5).endList();
+        unit.key(null).value("f");
+        unit.endMap();
+        Assert.assertEquals(
+            "<root><a><item>1</item><item>2</item><item/></a><b><c>true</c><d></d></b>" 
+            + "<e><item></item><item></item><item>1.5</item></e><null>f</null></root>",
+            unit.build().toString()
+        );
+    }
+    
+    /**
+     * Tests escaping of character data.
+     */
+    @Test
+    public void escape() {
+        final String value = "<a href=\"x\">&amp;</a>\r\n\t\u0001 \u00e4";
+        final String expected = 
+            "<root><item>&lt;a href=\"x\"&gt;&amp;amp;&lt;/a&gt;&#13;\n\t\ufffd \u00e4</item></root>";
+        Assert.assertEquals(expected, unit().list().value(value).endList().build().toString());
+    }
+    
+    /**
+     * Tests that unpaired surrogates are replaced while valid pairs are kept.
+     */
+    @Test
+    public void surrogates() {
+        final XmlRenderer unit = unit();
+        unit.list().value("a\ud800b").value("\udc00").value("\ud83d\ude00").value("\ude00\ud83d").endList();
+        Assert.assertEquals(
+            "<root><item>a\ufffdb</item><item>\ufffd</item><item>\ud83d\ude00</item><item>\ufffd\ufffd</item></root>",
+            unit.build().toString()
+        );
+    }
+    
+    /**
+     * Tests that surrogate pairs split across chunks of a reader are kept
+     * and unpaired surrogates at the end of a reader are replaced.
+     */
+    @Test
+    public void surrogatesStreamed() {
+        final StringBuilder prefix = new StringBuilder();
+        for (int i = 0; i < 4095; i++) {
+            prefix.append('a');
+        }
+        final String value = prefix + "\ud83d\ude00b";
+        final XmlRenderer unit = unit();
+        unit.list().value(new StringReader(value)).value(new StringReader(prefix + "\ud800")).endList();
+        Assert.assertEquals(
+            "<root><item>" + value + "</item><item>" + prefix + "\ufffd</item></root>", 
+            unit.build().toString()
+        );
+    }
+    
+    /**
+     * Tests that non finite doubles are rendered like xs:double.
+     */
+    @Test
+    public void notFinite() {
+        final XmlRenderer unit = unit();
+        unit.list().value(Double.NaN).value(Double.POSITIVE_INFINITY).value(Double.NEGATIVE_INFINITY);
+        unit.value(new double[] {Double.POSITIVE_INFINITY}).endList();
+        Assert.assertEquals(
+            "<root><item>NaN</item><item>INF</item><item>-INF</item><item><item>INF</item></item></root>", 
+            unit.build().toString()
+        );
+    }
+    
+    /**
+     * Tests that invalid keys are sanitized.
+     */
+    @Test
+    public void sanitize() {
+        final XmlRenderer unit = unit();
+        unit.map().key("first name").value(1).key("1st").value(2).key("").value(3).key("a-b.c_d").value(4).endMap();
+        Assert.assertEquals(
+            "<root><first_name>1</first_name><_1st>2</_1st><_>3</_><a-b.c_d>4</a-b.c_d></root>", 
+            unit.build().toString()
+        );
+    }
+    
+    /**
+     * Tests custom element names.
+     */
+    @Test
+    public void elements() {
+        final XmlRenderer unit = unit();
+        unit.setRootElement("response");
+        unit.setItemElement("entry");
+        unit.setKeyElements(new Function<String, String>() {
+            
+            @Override
+            public String apply(String from) {
+                return "key-" + from;
+            }
+            
+        });
+        unit.map().key("values").list().value(1).endList().endMap();
+        Assert.assertEquals(
+            "<response><key-values><entry>1</entry></key-values></response>", 
+            unit.build().toString()
+        );
+    }
+    
+    /**
+     * Tests that invalid element names are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidElement() {
+        unit().setItemElement("1tem");
+    }
+    
+    /**
+     * Tests that invalid element names produced for keys are rejected.
+     */
+    @Test(expected = RenderingException.class)
+    public void invalidKeyElement() {
+        final XmlRenderer unit = unit();
+        unit.setKeyElements(new Function<String, String>() {
+            
+            @Override
+            public String apply(String from) {
+                return from;
+            }
+            
+        });
+        unit.map().key("not valid");
+    }
+    
+    /**
+     * Tests that element names can't be changed after rendering has started.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void configureStarted() {
+        final XmlRenderer unit = unit();
+        unit.list();
+        unit.setItemElement("entry");
+    }
+    
+    /**
+     * Tests {@link XmlRenderer#XmlRenderer(java.io.OutputStream)}.
+     */
+    @Test
+    public void outputStream() {
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        new XmlRenderer(stream).list().value("\u00e4").endList();
+        Assert.assertEquals("<root><item>\u00e4</item></root>", new String(stream.toByteArray(), Charsets.UTF_8));
+    }
+    
+    /**
+     * Tests primitive arrays.
+     */
+    @Test
+    public void arrays() {
+        final XmlRenderer unit = unit();
+        unit.list().value(new long[] {1, 2}).value(new double[] {0.5}).value(new long[0]).endList();
+        Assert.assertEquals(
+            "<root><item><item>1</item><item>2</item></item><item><item>0.5</item></item><item></item></root>", 
+            unit.build().toString()
+        );
+    }
+    
+    /**
+     * Tests streamed values.
+     */
+    @Test
+    public void streams() {
+        final StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            large.append("a<");
+        }
+        final XmlRenderer unit = unit();
+        unit.list().value(new StringReader(large.toString()));
+        unit.value((Object) new ByteArrayInputStream(new byte[] {1, 2, 3})).endList();
+        final String escaped = large.toString().replace("<", "&lt;");
+        final String expected = "<root><item>" + escaped + "</item><item>AQID</item></root>";
+        Assert.assertEquals(expected, unit.build().toString());
+    }
+    
+}